@@ -0,0 +1,43 @@
+/*
+ * The Ackley Function. The minimum is 0.0, which occurs at (0.0,...,0.0)
+ * 
+ */
+
+public class Ackley implements ObjectiveFunction {
+
+	private final boolean fastMath;
+
+	public Ackley() {
+		this(false);
+	}
+
+	// fastMath approximates the cosines and exponentials, see FastMath
+	public Ackley(boolean fastMath) {
+		this.fastMath = fastMath;
+	}
+
+	public double eval(double[] values, int offset, int dim) {
+		double firstSum = 0.0;
+		double secondSum = 0.0;
+		for (int i = offset; i < offset + dim; i++) {
+			double x = values[i];
+			firstSum = firstSum + (x * x);
+			secondSum = secondSum + this.cos2Pi(x);
+		}
+		return -20.0 * this.exp(-0.2 * Math.sqrt(firstSum / dim)) - this.exp(secondSum / dim)
+				+ 20.0 + Math.E;
+	}
+
+	// cos(2 pi x)
+	private double cos2Pi(double x) {
+		return this.fastMath ? FastMath.cosTurns(x) : Math.cos(2.0 * Math.PI * x);
+	}
+
+	private double exp(double x) {
+		return this.fastMath ? FastMath.exp(x) : Math.exp(x);
+	}
+
+	public boolean isFastMath() {
+		return fastMath;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * This file implements Walker's alias method, which draws an index
+ * with probability proportional to its weight in O(1). Building the
+ * table for n weights takes O(n) (Vose's construction), so a GA that
+ * builds it once per generation and draws n parents from it selects
+ * in O(n) rather than scanning the weights for every parent
+ *
+ * Each of the n columns keeps its own index with probability
+ * probs[i] and gives it to aliases[i] otherwise. A draw picks a column
+ * and flips that coin, using one random number for both
+ *
+ */
+
+public class AliasTable {
+
+	private int n;
+	private double[] probs;
+	private int[] aliases;
+
+	// buffers of the construction, reused by every build
+	private double[] scaled;
+	private int[] small;
+	private int[] large;
+
+	// a table for up to capacity weights
+	public AliasTable(int capacity) {
+		this.probs = new double[capacity];
+		this.aliases = new int[capacity];
+		this.scaled = new double[capacity];
+		this.small = new int[capacity];
+		this.large = new int[capacity];
+	}
+
+	// builds the table for the first n entries of weights, which must not
+	// be negative and must have a positive, finite sum
+	public void build(double[] weights, int n) {
+		double sum = 0.0;
+		for (int i = 0; i < n; i++) {
+			sum += weights[i];
+		}
+		if (!(sum > 0.0) || Double.isInfinite(sum)) {
+			throw new IllegalArgumentException("weights must have a positive finite sum: " + sum);
+		}
+
+		// columns are filled from one that is short of the mean weight and
+		// one that is over it, until every column is full
+		int numSmall = 0;
+		int numLarge = 0;
+		for (int i = 0; i < n; i++) {
+			this.scaled[i] = weights[i] * n / sum;
+			this.aliases[i] = i;
+			if (this.scaled[i] < 1.0) {
+				this.small[numSmall++] = i;
+			} else {
+				this.large[numLarge++] = i;
+			}
+		}
+		while (numSmall > 0 && numLarge > 0) {
+			int s = this.small[--numSmall];
+			int l = this.large[numLarge - 1];
+			this.probs[s] = this.scaled[s];
+			this.aliases[s] = l;
+			this.scaled[l] = (this.scaled[l] + this.scaled[s]) - 1.0;
+			if (this.scaled[l] < 1.0) {
+				numLarge--;
+				this.small[numSmall++] = l;
+			}
+		}
+		// what is left is full up to rounding
+		while (numLarge > 0) {
+			this.probs[this.large[--numLarge]] = 1.0;
+		}
+		while (numSmall > 0) {
+			this.probs[this.small[--numSmall]] = 1.0;
+		}
+		this.n = n;
+	}
+
+	// an index in [0, n) drawn with probability proportional to its weight
+	public int sample(Rng rand) {
+		double u = rand.nextDouble() * this.n;
+		int column = Math.min((int) u, this.n - 1);
+		return u - column < this.probs[column] ? column : this.aliases[column];
+	}
+
+	// Getters
+
+	// number of weights of the last build
+	public int size() {
+		return n;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * This file checks that a warm swarm iteration allocates nothing, so
+ * the hot loop puts no load on the garbage collector. For every
+ * topology and objective it warms a swarm up, then counts the bytes
+ * the current thread allocates over a number of Swarm.singleIteration
+ * calls. The particle updates run on the calling thread (numThreads
+ * 1), where the JVM can count them
+ *
+ * Run "java AllocationCheck". It prints the bytes per iteration of
+ * every case and exits with status 1 if any of them allocated, or 2 if
+ * the JVM cannot count allocations
+ *
+ */
+
+import java.lang.management.ManagementFactory;
+
+public class AllocationCheck {
+
+	private static int[] SWARM_SIZES = new int[] { 16, 49 };
+	private static String[] NBHD_TYPES = new String[] { "gl", "ri", "vn", "ra" };
+	private static String[] FUNCTIONS = new String[] { "rok", "ack", "ras", "grk", "zak" };
+	private static int DIM = 30;
+
+	private static int WARMUP_ITERATIONS = 20000;
+	private static int MEASURED_ITERATIONS = 2000;
+
+	public static void main(String[] args) {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)
+				|| !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+			System.out.println("this JVM cannot count the bytes a thread allocates");
+			System.exit(2);
+		}
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		long thread = Thread.currentThread().getId();
+
+		// what reading the counter itself allocates
+		long before = allocations.getThreadAllocatedBytes(thread);
+		long overhead = allocations.getThreadAllocatedBytes(thread) - before;
+
+		boolean allocated = false;
+		for (int n = 0; n < SWARM_SIZES.length; n++) {
+			for (int t = 0; t < NBHD_TYPES.length; t++) {
+				for (int f = 0; f < FUNCTIONS.length; f++) {
+					Swarm swarm = new Swarm(SWARM_SIZES[n], Hybrid.createFunction(f, DIM), 1L);
+					swarm.createNbhds(NBHD_TYPES[t]);
+					for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+						swarm.singleIteration();
+					}
+
+					before = allocations.getThreadAllocatedBytes(thread);
+					for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+						swarm.singleIteration();
+					}
+					long bytes = Math.max(0, allocations.getThreadAllocatedBytes(thread) - before - overhead);
+					allocated |= bytes > 0;
+
+					System.out.println(String.format("%-28s %10.1f B/iteration%s",
+							"swarm " + NBHD_TYPES[t] + " " + FUNCTIONS[f] + " n=" + SWARM_SIZES[n],
+							(double) bytes / MEASURED_ITERATIONS, bytes > 0 ? "  ALLOCATES" : ""));
+				}
+			}
+		}
+		if (allocated) {
+			System.out.println("a warm swarm iteration allocated");
+			System.exit(1);
+		}
+		System.out.println("no warm swarm iteration allocated");
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * This file implements an asynchronous mode of the PSO, for objectives
+ * that take long to evaluate, such as a simulation. The synchronous
+ * iteration (Swarm.singleIteration) waits for the slowest particle
+ * before any best is updated, and the threads that finished early sit
+ * idle. Here every evaluation is a task on an executor, and a particle
+ * is moved again as soon as its own result is back, from the nbhd and
+ * global bests known at that point
+ *
+ * At most maxInFlight evaluations run at a time. The particles that are
+ * not being evaluated wait in a queue, in the order their results came
+ * back, so no particle moves more often than the others
+ *
+ * Only the evaluations run on the executor. Moving the particles and
+ * updating the bests stays on the thread that calls run, so the swarm
+ * needs no locks: the position of a particle is not changed while it
+ * is evaluated, and the results come back through a completion
+ * service. The results depend on the order the evaluations finish in,
+ * so runs are not reproducible from their seed
+ *
+ * virtualThreadExecutor suits objectives that block, platformExecutor
+ * CPU-bound ones. Run "java AsyncPso" to compare the throughput with
+ * the synchronous swarm on a LatencyObjective
+ *
+ */
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+public class AsyncPso {
+
+	private Swarm swarm;
+	private Function function;
+	private ExecutorService executor;
+	private int maxInFlight;
+	private StoppingCriterion stoppingCriterion;
+
+	// one task per particle, reused, since a particle is evaluated at
+	// most once at a time
+	private Evaluation[] evaluations;
+
+	// evaluations that came back, over every call of run
+	private long completed;
+	// iteration (numParticles completed evaluations) of the last new
+	// global best
+	private int globalBestIteration;
+
+	// runs the evaluations of swarm on executor, at most maxInFlight at a
+	// time. the executor is not shut down by this class
+	public AsyncPso(Swarm swarm, ExecutorService executor, int maxInFlight) {
+		this.swarm = swarm;
+		this.function = swarm.getFunction();
+		this.executor = executor;
+		this.maxInFlight = Math.max(1, maxInFlight);
+		this.evaluations = new Evaluation[swarm.getNumParticles()];
+		for (int i = 0; i < this.evaluations.length; i++) {
+			this.evaluations[i] = new Evaluation(i);
+		}
+	}
+
+	// runs until maxIterations iterations are complete or the stopping
+	// criterion is met, and returns why it stopped. an iteration is
+	// numParticles evaluations, as many as in a synchronous iteration.
+	// the evaluations still running when it stops are waited for
+	public String run(int maxIterations) {
+		int numParticles = this.swarm.getNumParticles();
+		boolean random = this.swarm.getNbhdType().equals("ra");
+		CompletionService<Evaluation> results = new ExecutorCompletionService<Evaluation>(this.executor);
+		TrialProgress progress = new TrialProgress();
+		long startTime = System.nanoTime();
+		String stopReason = StoppingCriteria.MAX_ITERATIONS;
+
+		// queue of the particles waiting to be moved and evaluated
+		int[] waiting = new int[numParticles];
+		int first = 0;
+		int numWaiting = numParticles;
+		for (int i = 0; i < numParticles; i++) {
+			waiting[i] = i;
+		}
+
+		if (this.swarm.refreshBests()) {
+			this.globalBestIteration = (int) (this.completed / numParticles);
+		}
+		long toSubmit = Math.max(0, (long) maxIterations * numParticles - this.completed);
+		int inFlight = 0;
+		try {
+			while (true) {
+				while (inFlight < this.maxInFlight && numWaiting > 0 && toSubmit > 0) {
+					int i = waiting[first];
+					first = (first + 1) % numParticles;
+					numWaiting--;
+					this.swarm.moveParticle(i);
+					results.submit(this.evaluations[i]);
+					inFlight++;
+					toSubmit--;
+				}
+				if (inFlight == 0) {
+					break;
+				}
+
+				Evaluation done = results.take().get();
+				inFlight--;
+				this.completed++;
+				int iterations = (int) (this.completed / numParticles);
+				if (this.swarm.completeEvaluation(done.index, done.value)) {
+					this.globalBestIteration = iterations;
+				}
+				waiting[(first + numWaiting) % numParticles] = done.index;
+				numWaiting++;
+
+				if (this.completed % numParticles != 0) {
+					continue;
+				}
+				if (random) {
+					this.swarm.randomizeNbhds(this.swarm.getProbNewRandNbhd());
+					this.swarm.refreshBests();
+				}
+				if (this.stoppingCriterion != null && toSubmit > 0) {
+					progress.update(iterations, this.swarm.getGlobalBestValue(), this.globalBestIteration,
+							this.function.getEvaluations(), System.nanoTime() - startTime);
+					String reason = this.stoppingCriterion.check(progress);
+					if (reason != null) {
+						stopReason = reason;
+						toSubmit = 0;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Asynchronous evaluation interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Asynchronous evaluation failed", e.getCause());
+		}
+		return stopReason;
+	}
+
+	// evaluates the current position of one particle
+	private class Evaluation implements Callable<Evaluation> {
+		private int index;
+		private double value;
+
+		public Evaluation(int index) {
+			this.index = index;
+		}
+
+		public Evaluation call() {
+			SwarmState state = swarm.state;
+			this.value = function.eval(state.positions, state.offset(this.index));
+			return this;
+		}
+	}
+
+	// an executor that runs every task on a new virtual thread, for
+	// objectives that block. virtual threads need Java 21, older JVMs get
+	// a cached pool of platform threads instead, which maxInFlight bounds
+	// all the same
+	public static ExecutorService virtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(daemonThreads());
+		}
+	}
+
+	// a pool of numThreads platform threads, for CPU-bound objectives
+	public static ExecutorService platformExecutor(int numThreads) {
+		return Executors.newFixedThreadPool(numThreads, daemonThreads());
+	}
+
+	// threads that do not keep the JVM alive if the executor is not shut
+	// down
+	private static ThreadFactory daemonThreads() {
+		return new ThreadFactory() {
+			private ThreadFactory threads = Executors.defaultThreadFactory();
+
+			public Thread newThread(Runnable task) {
+				Thread thread = this.threads.newThread(task);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	// compares the evaluations per second of the synchronous swarm and of
+	// this mode on Rastrigin with an artificial latency, for the same
+	// number of evaluations. the blocking objective is run on virtual
+	// threads, the CPU-bound one on a pool of the given number of threads
+	public static void main(String[] args) {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int numParticles = 30;
+		int dim = 30;
+		int iterations = 40;
+		double latencyMillis = 2.0;
+		double jitterMillis = 1.5;
+
+		for (int b = 0; b < 2; b++) {
+			boolean blocking = b == 0;
+			int inFlight = blocking ? numParticles : threads;
+			System.out.println((blocking ? "blocking" : "CPU-bound") + " objective, " + latencyMillis + " +- "
+					+ jitterMillis + " ms, " + inFlight + " in flight");
+
+			Swarm sync = latencySwarm(numParticles, dim, latencyMillis, jitterMillis, blocking);
+			sync.setNumThreads(inFlight);
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				sync.singleIteration();
+			}
+			report("  synchronous ", sync, System.nanoTime() - start);
+			sync.shutdown();
+
+			Swarm async = latencySwarm(numParticles, dim, latencyMillis, jitterMillis, blocking);
+			ExecutorService executor = blocking ? virtualThreadExecutor() : platformExecutor(threads);
+			start = System.nanoTime();
+			new AsyncPso(async, executor, inFlight).run(iterations);
+			report("  asynchronous", async, System.nanoTime() - start);
+			executor.shutdown();
+		}
+	}
+
+	// a swarm on Rastrigin whose evaluations after the initial ones are
+	// slowed down by a LatencyObjective
+	private static Swarm latencySwarm(int numParticles, int dim, double latencyMillis, double jitterMillis,
+			boolean blocking) {
+		Function function = Hybrid.createFunction(2, dim);
+		Swarm swarm = new Swarm(numParticles, function, 1L);
+		swarm.createNbhds("gl");
+		function.setObjective(new LatencyObjective(function.getObjective(), latencyMillis, jitterMillis, blocking));
+		function.resetEvaluations();
+		return swarm;
+	}
+
+	private static void report(String name, Swarm swarm, long nanos) {
+		long evaluations = swarm.getFunction().getEvaluations();
+		System.out.println(name + ": " + evaluations + " evaluations in " + nanos / 1000000 + " ms, "
+				+ (long) (evaluations * 1e9 / nanos) + " per second, global best " + swarm.getGlobalBestValue());
+	}
+
+	// Getters & Setters
+
+	public Swarm getSwarm() {
+		return swarm;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = Math.max(1, maxInFlight);
+	}
+
+	public long getCompleted() {
+		return completed;
+	}
+
+	public int getGlobalBestIteration() {
+		return globalBestIteration;
+	}
+
+	public StoppingCriterion getStoppingCriterion() {
+		return stoppingCriterion;
+	}
+
+	// see StoppingCriteria, null runs for maxIterations
+	public void setStoppingCriterion(StoppingCriterion stoppingCriterion) {
+		this.stoppingCriterion = stoppingCriterion;
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * This file benchmarks the hot paths of the hybrid: the function
+ * evaluations, a single particle update, a swarm iteration for each
+ * topology, a GA generation for each crossover/selection method and
+ * ranking the swarm with QuickSort and with Ranking
+ *
+ * Every benchmark is warmed up before it is measured, so the times
+ * reported are steady state and not JIT compilation. Each line gives
+ * the mean and the best round in nanoseconds per operation, along
+ * with the bytes allocated per operation
+ *
+ * Run with an optional argument to only run the benchmarks whose
+ * name contains it, e.g. "java Benchmarks swarm"
+ *
+ * This is a plain main rather than JMH, whose annotation processor
+ * would need a build the tree does not have. It covers what these
+ * numbers depend on: warm-up, rounds calibrated to a fixed time, a
+ * volatile sink so the work is not eliminated, and the allocation per
+ * call. What it lacks is JMH's fresh JVM per benchmark, so a call site
+ * the earlier benchmarks made polymorphic stays so. Comparing
+ * variants of one benchmark is best done with the filter, one run per
+ * variant
+ *
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+public class Benchmarks {
+
+	private static int[] DIMS = new int[] { 10, 30, 100 };
+	private static int[] SWARM_SIZES = new int[] { 16, 49, 144 };
+	private static String[] NBHD_TYPES = new String[] { "gl", "ri", "vn", "ra" };
+	private static String[] CROSS_METHODS = new String[] { "1c", "uc" };
+	private static String[] SELECTIONS = new String[] { "none", "rs", "ts", "bs" };
+	private static String[] FUNCTIONS = new String[] { "rok", "ack", "ras", "grk", "zak" };
+
+	private static int WARMUP_ROUNDS = 5;
+	private static int MEASURED_ROUNDS = 10;
+	private static long ROUND_NANOS = 100000000L; // 0.1 seconds per round
+
+	private static double CUT_RATIO = 0.2;
+	private static double MUT_PROB = 0.05;
+	private static double CROSS_PROB = 1.0;
+	private static int MAX_ITERATIONS = 10000;
+
+	// results are accumulated here so the JIT cannot remove the work
+	private static volatile double sink;
+
+	private static String filter = "";
+
+	public static void main(String[] args) {
+		if (args.length > 0) {
+			filter = args[0];
+		}
+
+		for (int d = 0; d < DIMS.length; d++) {
+			final int dim = DIMS[d];
+			for (int f = 0; f < FUNCTIONS.length; f++) {
+				final Function function = createFunction(FUNCTIONS[f], dim);
+				final double[] point = new Particle(function).getPos();
+				bench("eval " + FUNCTIONS[f] + " dim=" + dim, () -> sink += function.eval(point));
+			}
+		}
+
+		for (int d = 0; d < DIMS.length; d++) {
+			final int dim = DIMS[d];
+			final Function function = createFunction("ras", dim);
+			final Particle particle = new Particle(function);
+			final double[] globalBest = particle.getIndivBestPos();
+			bench("particle dim=" + dim, () -> particle.singleIteration(globalBest));
+		}
+
+		for (int n = 0; n < SWARM_SIZES.length; n++) {
+			for (int d = 0; d < DIMS.length; d++) {
+				final int numParticles = SWARM_SIZES[n];
+				final int dim = DIMS[d];
+				String params = " n=" + numParticles + " dim=" + dim;
+
+				for (int t = 0; t < NBHD_TYPES.length; t++) {
+					final Swarm swarm = new Swarm(numParticles, createFunction("ras", dim));
+					swarm.createNbhds(NBHD_TYPES[t]);
+					bench("swarm " + NBHD_TYPES[t] + params, () -> swarm.singleIteration());
+				}
+
+				for (int c = 0; c < CROSS_METHODS.length; c++) {
+					for (int s = 0; s < SELECTIONS.length; s++) {
+						final Function function = createFunction("ras", dim);
+						final Swarm swarm = new Swarm(numParticles, function);
+						swarm.createNbhds("ri");
+						final String crossMethod = CROSS_METHODS[c];
+						final String selection = SELECTIONS[s];
+						final GA ga = new GA(swarm, CUT_RATIO, MAX_ITERATIONS);
+						ga.setCurrIteration(MAX_ITERATIONS / 2);
+						bench("ga " + crossMethod + " " + selection + params, () -> 
+							ga.evolve(crossMethod, CROSS_PROB, MUT_PROB,
+									function.getMaxInitPos(), function.getMinInitPos(), selection));
+					}
+				}
+			}
+		}
+
+		for (int n = 0; n < SWARM_SIZES.length; n++) {
+			final int numParticles = SWARM_SIZES[n];
+			final Swarm swarm = new Swarm(numParticles, createFunction("ras", 30));
+			final double[][] fitnessValues = new double[2][numParticles];
+			bench("quicksort n=" + numParticles, () -> {
+				for (int i = 0; i < numParticles; i++) {
+					fitnessValues[0][i] = swarm.swarm[i].getValue();
+					fitnessValues[1][i] = i;
+				}
+				QuickSort.quickSort(fitnessValues);
+			});
+
+			final double[] fitness = new double[numParticles];
+			final Ranking ranking = new Ranking(numParticles);
+			final int numElite = (int) Math.round(CUT_RATIO * numParticles);
+			bench("argsort n=" + numParticles, () -> {
+				for (int i = 0; i < numParticles; i++) {
+					fitness[i] = swarm.swarm[i].getValue();
+				}
+				sink += ranking.argsort(fitness, numParticles)[0];
+			});
+			bench("topk n=" + numParticles, () -> {
+				for (int i = 0; i < numParticles; i++) {
+					fitness[i] = swarm.swarm[i].getValue();
+				}
+				sink += ranking.topK(fitness, numParticles, numElite)[0];
+			});
+		}
+	}
+
+	// creates a function with the initialization ranges Hybrid uses for
+	// it. FUNCTIONS is in the order of Hybrid's function numbers
+	private static Function createFunction(String functionType, int dim) {
+		return Hybrid.createFunction(Arrays.asList(FUNCTIONS).indexOf(functionType), dim);
+	}
+
+	// warms up then measures op, and prints the time and allocation per call
+	private static void bench(String name, Runnable op) {
+		if (!name.contains(filter)) {
+			return;
+		}
+
+		long opsPerRound = calibrate(op);
+		for (int r = 0; r < WARMUP_ROUNDS; r++) {
+			runRound(op, opsPerRound);
+		}
+
+		double total = 0.0;
+		double best = Double.MAX_VALUE;
+		long bytesBefore = allocatedBytes();
+		for (int r = 0; r < MEASURED_ROUNDS; r++) {
+			double nanosPerOp = (double) runRound(op, opsPerRound) / opsPerRound;
+			total += nanosPerOp;
+			best = Math.min(best, nanosPerOp);
+		}
+		double bytesPerOp = (double) (allocatedBytes() - bytesBefore) / (opsPerRound * MEASURED_ROUNDS);
+
+		System.out.println(String.format("%-32s %14.1f ns/op (best %.1f) %12.1f B/op",
+				name, total / MEASURED_ROUNDS, best, bytesPerOp));
+	}
+
+	// finds how many calls of op fill roughly one round
+	private static long calibrate(Runnable op) {
+		long ops = 1;
+		while (true) {
+			long nanos = runRound(op, ops);
+			if (nanos > ROUND_NANOS / 10 || ops > (1L << 40)) {
+				return Math.max(1, ops * ROUND_NANOS / Math.max(1, nanos));
+			}
+			ops *= 2;
+		}
+	}
+
+	// runs op the given number of times and returns the elapsed nanoseconds
+	private static long runRound(Runnable op, long ops) {
+		long start = System.nanoTime();
+		for (long i = 0; i < ops; i++) {
+			op.run();
+		}
+		return System.nanoTime() - start;
+	}
+
+	// bytes allocated so far by the current thread, or 0 if the JVM
+	// cannot report it
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * This file counts what an EvaluationCache saved during a trial: the
+ * memo lookups and hits, the evaluations the surrogate skipped, the
+ * true evaluations, and the error of the surrogate's predictions
+ * against the true values of the points it predicted and that were
+ * evaluated anyway
+ *
+ */
+
+public class CacheStats {
+
+	// the counters are updated by EvaluationCache
+	long lookups;
+	long hits;
+	long skipped;
+	long evaluations;
+	long numPredictions;
+	double predictionErrorSum;
+	double maxPredictionError;
+
+	void addPredictionError(double error) {
+		this.numPredictions++;
+		this.predictionErrorSum += error;
+		this.maxPredictionError = Math.max(this.maxPredictionError, error);
+	}
+
+	CacheStats copy() {
+		CacheStats copy = new CacheStats();
+		copy.lookups = this.lookups;
+		copy.hits = this.hits;
+		copy.skipped = this.skipped;
+		copy.evaluations = this.evaluations;
+		copy.numPredictions = this.numPredictions;
+		copy.predictionErrorSum = this.predictionErrorSum;
+		copy.maxPredictionError = this.maxPredictionError;
+		return copy;
+	}
+
+	public String toString() {
+		return "lookups: " + this.lookups + "; hit rate: " + this.getHitRate() + "; skipped: " + this.skipped
+				+ "; saved evaluations: " + this.getSavedEvaluations() + "; evaluations: " + this.evaluations
+				+ "; mean surrogate error: " + this.getMeanPredictionError()
+				+ "; max surrogate error: " + this.maxPredictionError;
+	}
+
+	// Getters
+
+	public long getLookups() {
+		return lookups;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	// fraction of the lookups the memo answered
+	public double getHitRate() {
+		return lookups == 0 ? 0.0 : (double) hits / lookups;
+	}
+
+	// evaluations the surrogate pre-screen skipped
+	public long getSkipped() {
+		return skipped;
+	}
+
+	// evaluations the memo and the surrogate saved together
+	public long getSavedEvaluations() {
+		return hits + skipped;
+	}
+
+	// true evaluations of the objective
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	// number of predictions whose error is known
+	public long getNumPredictions() {
+		return numPredictions;
+	}
+
+	// mean absolute error of the predictions whose error is known
+	public double getMeanPredictionError() {
+		return numPredictions == 0 ? 0.0 : predictionErrorSum / numPredictions;
+	}
+
+	public double getMaxPredictionError() {
+		return maxPredictionError;
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * This file stores checkpoints of a running trial in a memory-mapped
+ * binary file, so a trial can be resumed after the JVM is killed
+ *
+ *   file = header, slot, slot
+ *   header = MAGIC, VERSION, payloadSize, HEADER_LONGS longs that
+ *            identify the trial (see Hybrid)
+ *   slot = sequence, payload, sequence
+ *
+ * The file is mapped once and checkpoints alternate between the two
+ * slots, so writing one is a copy into memory and a force. A slot is
+ * only valid when both of its sequence numbers agree, and they are
+ * written last, so a crash while writing a checkpoint leaves the
+ * previous one in the other slot intact. The payload is written by
+ * the trial itself, see Trial.writeCheckpoint
+ *
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class Checkpoint {
+
+	public static final int MAGIC = 0x50534F43; // "PSOC"
+	public static final int VERSION = 4;
+
+	// number of longs in the header after MAGIC, VERSION and payloadSize
+	public static final int HEADER_LONGS = 21;
+	private static final int HEADER_SIZE = 12 + 8 * HEADER_LONGS;
+
+	// bytes putRng writes
+	public static final int RNG_SIZE = 32;
+
+	private RandomAccessFile file;
+	private MappedByteBuffer buffer;
+	private int payloadSize;
+	private long[] header;
+
+	// sequence number of the latest complete checkpoint, 0 if none
+	private long sequence;
+	// slot the latest complete checkpoint is in
+	private int latestSlot;
+
+	private Checkpoint(RandomAccessFile file, int payloadSize, long[] header) throws IOException {
+		this.file = file;
+		this.payloadSize = payloadSize;
+		this.header = header;
+		long size = HEADER_SIZE + 2 * (16L + payloadSize);
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Checkpoint of " + size + " bytes is too large to map");
+		}
+		this.file.setLength(size);
+		this.buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+
+	// creates (or overwrites) file for checkpoints of payloadSize bytes
+	public static Checkpoint create(File file, long[] header, int payloadSize) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			Checkpoint checkpoint = new Checkpoint(raf, payloadSize, header.clone());
+			checkpoint.buffer.putInt(0, MAGIC);
+			checkpoint.buffer.putInt(4, VERSION);
+			checkpoint.buffer.putInt(8, payloadSize);
+			for (int i = 0; i < HEADER_LONGS; i++) {
+				checkpoint.buffer.putLong(12 + 8 * i, header[i]);
+			}
+			checkpoint.buffer.force();
+			return checkpoint;
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	// opens a file written by create, to read its latest checkpoint and
+	// carry on writing checkpoints to it
+	public static Checkpoint open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC) {
+				throw new IOException("Not a checkpoint file: " + file);
+			}
+			int version = raf.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported checkpoint version " + version);
+			}
+			int payloadSize = raf.readInt();
+			long[] header = new long[HEADER_LONGS];
+			for (int i = 0; i < HEADER_LONGS; i++) {
+				header[i] = raf.readLong();
+			}
+			if (raf.length() != HEADER_SIZE + 2 * (16L + payloadSize)) {
+				throw new IOException("Checkpoint file has the wrong size: " + file);
+			}
+			Checkpoint checkpoint = new Checkpoint(raf, payloadSize, header);
+			for (int slot = 0; slot < 2; slot++) {
+				long first = checkpoint.buffer.getLong(checkpoint.slotOffset(slot));
+				long last = checkpoint.buffer.getLong(checkpoint.slotOffset(slot) + 8 + payloadSize);
+				if (first == last && first > checkpoint.sequence) {
+					checkpoint.sequence = first;
+					checkpoint.latestSlot = slot;
+				}
+			}
+			return checkpoint;
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	private int slotOffset(int slot) {
+		return HEADER_SIZE + slot * (16 + this.payloadSize);
+	}
+
+	// whether the file holds a complete checkpoint
+	public boolean hasCheckpoint() {
+		return this.sequence > 0;
+	}
+
+	// the payload of the latest complete checkpoint
+	public ByteBuffer latest() throws IOException {
+		if (!this.hasCheckpoint()) {
+			throw new IOException("The checkpoint file holds no complete checkpoint");
+		}
+		return this.payload(this.latestSlot);
+	}
+
+	// the payload of slot, positioned at its start
+	private ByteBuffer payload(int slot) {
+		ByteBuffer payload = this.buffer.duplicate();
+		payload.position(this.slotOffset(slot) + 8);
+		payload.limit(this.slotOffset(slot) + 8 + this.payloadSize);
+		return payload.slice();
+	}
+
+	// the payload of the slot not holding the latest checkpoint, which
+	// is invalidated first. fill it and call commit
+	public ByteBuffer begin() {
+		int slot = 1 - this.latestSlot;
+		this.buffer.putLong(this.slotOffset(slot), 0L);
+		return this.payload(slot);
+	}
+
+	// makes the slot filled since begin the latest checkpoint, once it
+	// is on disk
+	public void commit() {
+		int slot = 1 - this.latestSlot;
+		long next = this.sequence + 1;
+		this.buffer.putLong(this.slotOffset(slot) + 8 + this.payloadSize, next);
+		this.buffer.force();
+		this.buffer.putLong(this.slotOffset(slot), next);
+		this.buffer.force();
+		this.sequence = next;
+		this.latestSlot = slot;
+	}
+
+	public void close() throws IOException {
+		this.file.close();
+	}
+
+	// bulk copies between arrays and a buffer, advancing its position
+
+	public static void putDoubles(ByteBuffer buffer, double[] values, int length) {
+		buffer.asDoubleBuffer().put(values, 0, length);
+		buffer.position(buffer.position() + 8 * length);
+	}
+
+	public static void getDoubles(ByteBuffer buffer, double[] values, int length) {
+		buffer.asDoubleBuffer().get(values, 0, length);
+		buffer.position(buffer.position() + 8 * length);
+	}
+
+	public static void putInts(ByteBuffer buffer, int[] values, int length) {
+		buffer.asIntBuffer().put(values, 0, length);
+		buffer.position(buffer.position() + 4 * length);
+	}
+
+	public static void getInts(ByteBuffer buffer, int[] values, int length) {
+		buffer.asIntBuffer().get(values, 0, length);
+		buffer.position(buffer.position() + 4 * length);
+	}
+
+	public static void putRng(ByteBuffer buffer, Rng rng) {
+		for (long word : rng.getState()) {
+			buffer.putLong(word);
+		}
+	}
+
+	public static void getRng(ByteBuffer buffer, Rng rng) {
+		long[] state = new long[4];
+		for (int i = 0; i < 4; i++) {
+			state[i] = buffer.getLong();
+		}
+		rng.setState(state);
+	}
+
+	// Getters
+
+	public long[] getHeader() {
+		return header.clone();
+	}
+
+	public int getPayloadSize() {
+		return payloadSize;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * This file reads the files written by ColumnarResultSink and replays
+ * every trial in them into another ResultSink, such as XlsExporter.
+ * A block cut short by a crash is skipped, so partial sweeps are
+ * still readable. Version 1 files, which predate stopping criteria,
+ * read as trials that ran all of their iterations
+ * 
+ */
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+public class ColumnarResultReader {
+
+	private ColumnarResultReader() {
+	}
+
+	// writes every complete trial of file to target, returns how many
+	public static int read(File file, ResultSink target) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		int numTrials = 0;
+		try {
+			if (in.readInt() != ColumnarResultSink.MAGIC) {
+				throw new IOException("Not a results file: " + file);
+			}
+			int version = in.readInt();
+			if (version < 1 || version > ColumnarResultSink.VERSION) {
+				throw new IOException("Unsupported results file version " + version);
+			}
+			while (true) {
+				int count;
+				try {
+					count = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				try {
+					numTrials += readBlock(in, version, count, target);
+				} catch (EOFException e) {
+					// truncated last block
+					break;
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return numTrials;
+	}
+
+	// reads the columns of one block and writes its trials to target
+	private static int readBlock(DataInputStream in, int version, int count, ResultSink target) throws IOException {
+		int[] id = new int[count];
+		double[] cutRatio = new double[count];
+		double[] mutProb = new double[count];
+		double[] crossProb = new double[count];
+		int[] numParticles = new int[count];
+		int[] dim = new int[count];
+		int[] maxIterations = new int[count];
+		String[] nbhdType = new String[count];
+		String[] crossMethod = new String[count];
+		String[] sel = new String[count];
+		int[] functionNum = new int[count];
+		long[] seed = new long[count];
+		double[] gBest = new double[count];
+		int[] gBestIteration = new int[count];
+		double[] runTime = new double[count];
+		long[] evaluations = new long[count];
+		int[] iterations = new int[count];
+		String[] stopReason = new String[count];
+		double[][] trace = new double[count][];
+
+		for (int i = 0; i < count; i++) {
+			id[i] = in.readInt();
+		}
+		for (int i = 0; i < count; i++) {
+			cutRatio[i] = in.readDouble();
+		}
+		for (int i = 0; i < count; i++) {
+			mutProb[i] = in.readDouble();
+		}
+		for (int i = 0; i < count; i++) {
+			crossProb[i] = in.readDouble();
+		}
+		for (int i = 0; i < count; i++) {
+			numParticles[i] = in.readInt();
+		}
+		for (int i = 0; i < count; i++) {
+			dim[i] = in.readInt();
+		}
+		for (int i = 0; i < count; i++) {
+			maxIterations[i] = in.readInt();
+		}
+		for (int i = 0; i < count; i++) {
+			nbhdType[i] = in.readUTF();
+		}
+		for (int i = 0; i < count; i++) {
+			crossMethod[i] = in.readUTF();
+		}
+		for (int i = 0; i < count; i++) {
+			sel[i] = in.readUTF();
+		}
+		for (int i = 0; i < count; i++) {
+			functionNum[i] = in.readInt();
+		}
+		for (int i = 0; i < count; i++) {
+			seed[i] = in.readLong();
+		}
+		for (int i = 0; i < count; i++) {
+			gBest[i] = in.readDouble();
+		}
+		for (int i = 0; i < count; i++) {
+			gBestIteration[i] = in.readInt();
+		}
+		for (int i = 0; i < count; i++) {
+			runTime[i] = in.readDouble();
+		}
+		for (int i = 0; i < count; i++) {
+			evaluations[i] = in.readLong();
+		}
+		for (int i = 0; i < count; i++) {
+			iterations[i] = (version >= 2) ? in.readInt() : maxIterations[i];
+		}
+		for (int i = 0; i < count; i++) {
+			stopReason[i] = (version >= 2) ? in.readUTF() : StoppingCriteria.MAX_ITERATIONS;
+		}
+		for (int i = 0; i < count; i++) {
+			trace[i] = new double[in.readInt()];
+		}
+		for (int i = 0; i < count; i++) {
+			for (int j = 0; j < trace[i].length; j++) {
+				trace[i][j] = in.readDouble();
+			}
+		}
+
+		for (int i = 0; i < count; i++) {
+			TrialJob job = new TrialJob(id[i], cutRatio[i], mutProb[i], crossProb[i],
+					numParticles[i], dim[i], maxIterations[i],
+					nbhdType[i], crossMethod[i], sel[i], functionNum[i], seed[i]);
+			TrialResult result = new TrialResult(functionNum[i], cutRatio[i], seed[i], gBest[i],
+					gBestIteration[i], runTime[i], evaluations[i], trace[i], iterations[i], stopReason[i]);
+			target.write(job, result);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * This file writes finished trials to a compact, append-only binary
+ * file. Trials are grouped into blocks of up to blockSize trials and
+ * each block is stored column by column:
+ * 
+ *   file  = MAGIC, VERSION, block*
+ *   block = count, then one column per field of TrialJob/TrialResult
+ *           in the order of CsvResultSink.HEADER, where the trace
+ *           column is the trace lengths followed by all their values
+ * 
+ * A block is encoded in memory and written with a single write, so a
+ * crash can only lose the block being filled. ColumnarResultReader
+ * reads the file back and ignores a truncated last block
+ * 
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ColumnarResultSink implements ResultSink {
+
+	public static final int MAGIC = 0x50534F47; // "PSOG"
+	// version 2 added the iterations and stopReason columns
+	public static final int VERSION = 2;
+
+	private FileOutputStream out;
+	private int blockSize;
+	private List<TrialJob> jobs = new ArrayList<TrialJob>();
+	private List<TrialResult> results = new ArrayList<TrialResult>();
+
+	// appends to file in blocks of blockSize trials. a file that is not
+	// empty must be a results file of this version
+	public ColumnarResultSink(File file, int blockSize) throws IOException {
+		boolean isNew = !file.exists() || file.length() == 0;
+		if (!isNew) {
+			checkHeader(file);
+		}
+		this.out = new FileOutputStream(file, true);
+		this.blockSize = Math.max(1, blockSize);
+		if (isNew) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream header = new DataOutputStream(bytes);
+			header.writeInt(MAGIC);
+			header.writeInt(VERSION);
+			this.out.write(bytes.toByteArray());
+			this.out.flush();
+		}
+	}
+
+	// the blocks of another version could not be read back with the
+	// file's, so appending to it is refused
+	private static void checkHeader(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			if (file.length() < 8 || in.readInt() != MAGIC) {
+				throw new IOException("Not a results file: " + file);
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Cannot append to a results file of version " + version + ", this is version "
+						+ VERSION + ": " + file);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	public synchronized void write(TrialJob job, TrialResult result) throws IOException {
+		this.jobs.add(job);
+		this.results.add(result);
+		if (this.jobs.size() >= this.blockSize) {
+			this.writeBlock();
+		}
+	}
+
+	public synchronized void close() throws IOException {
+		this.writeBlock();
+		this.out.close();
+	}
+
+	// encodes the buffered trials as one block and appends it
+	private void writeBlock() throws IOException {
+		int count = this.jobs.size();
+		if (count == 0) {
+			return;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream block = new DataOutputStream(bytes);
+
+		block.writeInt(count);
+		for (TrialJob job : this.jobs) {
+			block.writeInt(job.getId());
+		}
+		for (TrialJob job : this.jobs) {
+			block.writeDouble(job.getCutRatio());
+		}
+		for (TrialJob job : this.jobs) {
+			block.writeDouble(job.getMutProb());
+		}
+		for (TrialJob job : this.jobs) {
+			block.writeDouble(job.getCrossProb());
+		}
+		for (TrialJob job : this.jobs) {
+			block.writeInt(job.getNumParticles());
+		}
+		for (TrialJob job : this.jobs) {
+			block.writeInt(job.getDim());
+		}
+		for (TrialJob job : this.jobs) {
+			block.writeInt(job.getMaxIterations());
+		}
+		for (TrialJob job : this.jobs) {
+			block.writeUTF(job.getNbhdType());
+		}
+		for (TrialJob job : this.jobs) {
+			block.writeUTF(job.getCrossMethod());
+		}
+		for (TrialJob job : this.jobs) {
+			block.writeUTF(job.getSel());
+		}
+		for (TrialJob job : this.jobs) {
+			block.writeInt(job.getFunctionNum());
+		}
+		for (TrialResult result : this.results) {
+			block.writeLong(result.getSeed());
+		}
+		for (TrialResult result : this.results) {
+			block.writeDouble(result.getGlobalBestValue());
+		}
+		for (TrialResult result : this.results) {
+			block.writeInt(result.getGlobalBestIteration());
+		}
+		for (TrialResult result : this.results) {
+			block.writeDouble(result.getRunTime());
+		}
+		for (TrialResult result : this.results) {
+			block.writeLong(result.getEvaluations());
+		}
+		for (TrialResult result : this.results) {
+			block.writeInt(result.getIterations());
+		}
+		for (TrialResult result : this.results) {
+			block.writeUTF(result.getStopReason());
+		}
+		for (TrialResult result : this.results) {
+			block.writeInt(result.getTrace().length);
+		}
+		for (TrialResult result : this.results) {
+			for (double value : result.getTrace()) {
+				block.writeDouble(value);
+			}
+		}
+
+		this.out.write(bytes.toByteArray());
+		this.out.flush();
+		this.jobs.clear();
+		this.results.clear();
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * This file writes finished trials to an append-only CSV file, one
+ * line per trial, flushed as soon as it is written. The convergence
+ * trace is the last column, its entries separated by ';'
+ * 
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+public class CsvResultSink implements ResultSink {
+
+	public static final String HEADER = "jobId,cutRatio,mutProb,crossProb,numParticles,dim,maxIterations,"
+			+ "nbhdType,crossMethod,sel,functionNum,seed,gBest,gBestIteration,runTime,evaluations,"
+			+ "iterations,stopReason,trace";
+
+	private Writer out;
+
+	// appends to file, writing the header first if the file is new or empty
+	public CsvResultSink(File file) throws IOException {
+		boolean isNew = !file.exists() || file.length() == 0;
+		this.out = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file, true), StandardCharsets.UTF_8));
+		if (isNew) {
+			this.out.write(HEADER);
+			this.out.write('\n');
+			this.out.flush();
+		}
+	}
+
+	public synchronized void write(TrialJob job, TrialResult result) throws IOException {
+		StringBuilder line = new StringBuilder();
+		line.append(job.getId()).append(',')
+			.append(job.getCutRatio()).append(',')
+			.append(job.getMutProb()).append(',')
+			.append(job.getCrossProb()).append(',')
+			.append(job.getNumParticles()).append(',')
+			.append(job.getDim()).append(',')
+			.append(job.getMaxIterations()).append(',')
+			.append(job.getNbhdType()).append(',')
+			.append(job.getCrossMethod()).append(',')
+			.append(job.getSel()).append(',')
+			.append(job.getFunctionNum()).append(',')
+			.append(result.getSeed()).append(',')
+			.append(result.getGlobalBestValue()).append(',')
+			.append(result.getGlobalBestIteration()).append(',')
+			.append(result.getRunTime()).append(',')
+			.append(result.getEvaluations()).append(',')
+			.append(result.getIterations()).append(',')
+			.append(result.getStopReason()).append(',');
+		double[] trace = result.getTrace();
+		for (int i = 0; i < trace.length; i++) {
+			if (i > 0) {
+				line.append(';');
+			}
+			line.append(trace[i]);
+		}
+		line.append('\n');
+		this.out.write(line.toString());
+		this.out.flush();
+	}
+
+	public synchronized void close() throws IOException {
+		this.out.close();
+	}
+}
@@ -0,0 +1,349 @@
+/*
+ * This file implements an optional layer in front of an expensive
+ * objective (see Function.setCache). It does two things:
+ *
+ *   memo:      the values of the last capacity distinct points, kept in
+ *              least recently used order, so an exact repeat of a point
+ *              (a particle duplicated by selection, a converged swarm)
+ *              is not evaluated again
+ *   surrogate: the last archiveSize evaluated points, from which the
+ *              value of a new point is predicted as the inverse
+ *              distance weighted mean of its k nearest neighbours.
+ *              Swarm pre-screens its particles with it and only
+ *              evaluates those predicted to come close to their
+ *              individual best, see Function.evalScreened
+ *
+ * A skipped particle gets the predicted value, which the PSO and the
+ * GA then use as its fitness. How often each part paid off and how far
+ * the predictions were from the true values is counted in CacheStats
+ *
+ * The methods are synchronized, since a parallel swarm evaluates from
+ * several threads. The objective itself is evaluated outside the lock.
+ * Swarm defers the stores of an iteration (see beginDeferral), so every
+ * particle is looked up and screened against the cache as it stood
+ * before the iteration and the new points go in by particle index. A
+ * run then does not depend on the order the threads finish in
+ *
+ */
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class EvaluationCache {
+
+	private int dim;
+
+	// memo of exact values, in access order
+	private int capacity;
+	private LinkedHashMap<Key, Double> memo;
+	// reused to look points up without copying them
+	private Key probe = new Key();
+
+	// ring buffer of the evaluated points the surrogate predicts from
+	private int archiveSize;
+	private int numArchived;
+	private int nextArchived;
+	private double[] archivePositions;
+	private double[] archiveValues;
+
+	// number of nearest neighbours the surrogate weights
+	private int neighbours;
+	// a point is skipped when its prediction is worse than its threshold
+	// by more than screenMargin times the threshold's magnitude
+	private double screenMargin;
+	private int[] nearest;
+	private double[] nearestDistances;
+
+	// stores held back while deferred, applied in the order of their
+	// offsets by endDeferral
+	private boolean deferred;
+	private int numPending;
+	private int[] pendingOffsets = new int[0];
+	private double[] pendingPositions = new double[0];
+	private double[] pendingValues = new double[0];
+	private double[] pendingPredicted = new double[0];
+	private long[] pendingOrder = new long[0];
+
+	private CacheStats stats = new CacheStats();
+
+	// a memo of capacity points (0 for none) and a surrogate over the
+	// last archiveSize points (0 for none) for points of dim coordinates
+	public EvaluationCache(int dim, int capacity, int archiveSize, int neighbours, double screenMargin) {
+		this.dim = dim;
+		this.capacity = capacity;
+		this.memo = new LinkedHashMap<Key, Double>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<Key, Double> eldest) {
+				return this.size() > EvaluationCache.this.capacity;
+			}
+		};
+		this.archiveSize = archiveSize;
+		this.archivePositions = new double[archiveSize * dim];
+		this.archiveValues = new double[archiveSize];
+		this.neighbours = Math.max(1, neighbours);
+		this.screenMargin = screenMargin;
+		this.nearest = new int[this.neighbours];
+		this.nearestDistances = new double[this.neighbours];
+	}
+
+	// the memoised value of the point at offset in values, or null
+	public synchronized Double lookup(double[] values, int offset) {
+		this.stats.lookups++;
+		if (this.capacity == 0) {
+			return null;
+		}
+		Double value = this.memo.get(this.probe.set(values, offset, this.dim));
+		if (value != null) {
+			this.stats.hits++;
+		}
+		return value;
+	}
+
+	// the surrogate's prediction for the point at offset in values, or
+	// NaN while fewer than k points have been evaluated
+	public synchronized double predict(double[] values, int offset) {
+		if (this.numArchived < this.neighbours) {
+			return Double.NaN;
+		}
+		int k = this.neighbours;
+		for (int j = 0; j < k; j++) {
+			this.nearestDistances[j] = Double.POSITIVE_INFINITY;
+		}
+		for (int a = 0; a < this.numArchived; a++) {
+			double distance = 0.0;
+			int start = a * this.dim;
+			for (int i = 0; i < this.dim; i++) {
+				double d = this.archivePositions[start + i] - values[offset + i];
+				distance += d * d;
+			}
+			// insertion into the k nearest so far, nearest first
+			if (distance < this.nearestDistances[k - 1]) {
+				int j = k - 1;
+				while (j > 0 && this.nearestDistances[j - 1] > distance) {
+					this.nearestDistances[j] = this.nearestDistances[j - 1];
+					this.nearest[j] = this.nearest[j - 1];
+					j--;
+				}
+				this.nearestDistances[j] = distance;
+				this.nearest[j] = a;
+			}
+		}
+		if (this.nearestDistances[0] == 0.0) {
+			return this.archiveValues[this.nearest[0]];
+		}
+		double weightedSum = 0.0;
+		double weights = 0.0;
+		for (int j = 0; j < k; j++) {
+			double weight = 1.0 / Math.sqrt(this.nearestDistances[j]);
+			weightedSum += weight * this.archiveValues[this.nearest[j]];
+			weights += weight;
+		}
+		return weightedSum / weights;
+	}
+
+	// whether a point predicted to have value predicted can be skipped,
+	// given that only values below threshold are of use. counts the skip
+	public synchronized boolean skip(double predicted, double threshold) {
+		if (predicted != predicted || predicted - threshold <= this.screenMargin * Math.abs(threshold)) {
+			return false;
+		}
+		this.stats.skipped++;
+		return true;
+	}
+
+	// records the true value of the point at offset in values, whose
+	// prediction was predicted (NaN if it was not predicted)
+	public synchronized void store(double[] values, int offset, double value, double predicted) {
+		if (this.deferred) {
+			this.hold(values, offset, value, predicted);
+			return;
+		}
+		this.add(values, offset, value, predicted);
+	}
+
+	// holds back the stores until endDeferral. the points stored in the
+	// meantime must have distinct offsets, as the particles of one
+	// iteration do
+	public synchronized void beginDeferral() {
+		this.deferred = true;
+	}
+
+	// applies the stores held back since beginDeferral, by offset
+	public synchronized void endDeferral() {
+		this.deferred = false;
+		// offset in the high bits, so sorting orders by offset
+		for (int p = 0; p < this.numPending; p++) {
+			this.pendingOrder[p] = ((long) this.pendingOffsets[p] << 32) | p;
+		}
+		Arrays.sort(this.pendingOrder, 0, this.numPending);
+		for (int q = 0; q < this.numPending; q++) {
+			int p = (int) this.pendingOrder[q];
+			this.add(this.pendingPositions, p * this.dim, this.pendingValues[p], this.pendingPredicted[p]);
+		}
+		this.numPending = 0;
+	}
+
+	private void hold(double[] values, int offset, double value, double predicted) {
+		if (this.numPending == this.pendingValues.length) {
+			int size = Math.max(16, 2 * this.numPending);
+			this.pendingOffsets = Arrays.copyOf(this.pendingOffsets, size);
+			this.pendingPositions = Arrays.copyOf(this.pendingPositions, size * this.dim);
+			this.pendingValues = Arrays.copyOf(this.pendingValues, size);
+			this.pendingPredicted = Arrays.copyOf(this.pendingPredicted, size);
+			this.pendingOrder = Arrays.copyOf(this.pendingOrder, size);
+		}
+		int p = this.numPending++;
+		this.pendingOffsets[p] = offset;
+		System.arraycopy(values, offset, this.pendingPositions, p * this.dim, this.dim);
+		this.pendingValues[p] = value;
+		this.pendingPredicted[p] = predicted;
+	}
+
+	private void add(double[] values, int offset, double value, double predicted) {
+		this.stats.evaluations++;
+		if (predicted == predicted) {
+			this.stats.addPredictionError(Math.abs(predicted - value));
+		}
+		if (this.capacity > 0) {
+			double[] position = new double[this.dim];
+			System.arraycopy(values, offset, position, 0, this.dim);
+			this.memo.put(new Key().set(position, 0, this.dim), value);
+		}
+		if (this.archiveSize > 0) {
+			System.arraycopy(values, offset, this.archivePositions, this.nextArchived * this.dim, this.dim);
+			this.archiveValues[this.nextArchived] = value;
+			this.nextArchived = (this.nextArchived + 1) % this.archiveSize;
+			this.numArchived = Math.min(this.numArchived + 1, this.archiveSize);
+		}
+	}
+
+	// bytes writeCheckpoint writes: the memo, the archive and the stats.
+	// room is kept for a full memo, so the size is fixed
+	public int checkpointSize() {
+		return 4 + 8 * this.capacity * (this.dim + 1) + 4 + 4 + 8 * this.archiveSize * (this.dim + 1)
+				+ 8 * 5 + 8 * 2;
+	}
+
+	// writes the memo, in access order, the archive and the stats to
+	// buffer, see Checkpoint. only valid between iterations, when no
+	// stores are held back
+	public synchronized void writeCheckpoint(ByteBuffer buffer) {
+		int start = buffer.position();
+		buffer.putInt(this.memo.size());
+		for (Map.Entry<Key, Double> entry : this.memo.entrySet()) {
+			Key key = entry.getKey();
+			for (int i = 0; i < this.dim; i++) {
+				buffer.putDouble(key.values[key.offset + i]);
+			}
+			buffer.putDouble(entry.getValue());
+		}
+		buffer.position(start + 4 + 8 * this.capacity * (this.dim + 1));
+		buffer.putInt(this.numArchived);
+		buffer.putInt(this.nextArchived);
+		Checkpoint.putDoubles(buffer, this.archivePositions, this.archiveSize * this.dim);
+		Checkpoint.putDoubles(buffer, this.archiveValues, this.archiveSize);
+		buffer.putLong(this.stats.lookups);
+		buffer.putLong(this.stats.hits);
+		buffer.putLong(this.stats.skipped);
+		buffer.putLong(this.stats.evaluations);
+		buffer.putLong(this.stats.numPredictions);
+		buffer.putDouble(this.stats.predictionErrorSum);
+		buffer.putDouble(this.stats.maxPredictionError);
+	}
+
+	// reads what writeCheckpoint wrote into a cache with the same sizes
+	public synchronized void readCheckpoint(ByteBuffer buffer) {
+		int start = buffer.position();
+		this.memo.clear();
+		int size = buffer.getInt();
+		for (int m = 0; m < size; m++) {
+			double[] position = new double[this.dim];
+			Checkpoint.getDoubles(buffer, position, this.dim);
+			this.memo.put(new Key().set(position, 0, this.dim), buffer.getDouble());
+		}
+		buffer.position(start + 4 + 8 * this.capacity * (this.dim + 1));
+		this.numArchived = buffer.getInt();
+		this.nextArchived = buffer.getInt();
+		Checkpoint.getDoubles(buffer, this.archivePositions, this.archiveSize * this.dim);
+		Checkpoint.getDoubles(buffer, this.archiveValues, this.archiveSize);
+		this.stats.lookups = buffer.getLong();
+		this.stats.hits = buffer.getLong();
+		this.stats.skipped = buffer.getLong();
+		this.stats.evaluations = buffer.getLong();
+		this.stats.numPredictions = buffer.getLong();
+		this.stats.predictionErrorSum = buffer.getDouble();
+		this.stats.maxPredictionError = buffer.getDouble();
+	}
+
+	// a point as a key of the memo: a range of an array, compared and
+	// hashed by the bits of its coordinates
+	private static class Key {
+		private double[] values;
+		private int offset;
+		private int dim;
+		private int hash;
+
+		public Key set(double[] values, int offset, int dim) {
+			this.values = values;
+			this.offset = offset;
+			this.dim = dim;
+			int hash = 1;
+			for (int i = offset; i < offset + dim; i++) {
+				long bits = Double.doubleToLongBits(values[i]);
+				hash = 31 * hash + (int) (bits ^ (bits >>> 32));
+			}
+			this.hash = hash;
+			return this;
+		}
+
+		public int hashCode() {
+			return this.hash;
+		}
+
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			if (key.hash != this.hash || key.dim != this.dim) {
+				return false;
+			}
+			for (int i = 0; i < this.dim; i++) {
+				if (Double.doubleToLongBits(this.values[this.offset + i])
+						!= Double.doubleToLongBits(key.values[key.offset + i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	// Getters
+
+	public synchronized CacheStats getStats() {
+		return stats.copy();
+	}
+
+	public boolean hasSurrogate() {
+		return archiveSize > 0;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getArchiveSize() {
+		return archiveSize;
+	}
+
+	public int getNeighbours() {
+		return neighbours;
+	}
+
+	public double getScreenMargin() {
+		return screenMargin;
+	}
+}
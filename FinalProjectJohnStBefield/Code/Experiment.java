@@ -0,0 +1,190 @@
+/*
+ * This file runs a sweep of the hybrid over a grid of parameters.
+ * The grid is expanded into independent TrialJobs that are run on a
+ * work-stealing pool sized to the machine. The jobs expected to take
+ * longest are started first so a few big swarms do not straggle at
+ * the end of the sweep
+ * 
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class Experiment {
+
+	private double[] cutRatios;
+	private double[] mutProbs;
+	private double[] crossProbs;
+	private int[] numParticles;
+	private String[] nbhdTypes;
+	private String[] crossMethods;
+	private String[] selections;
+	private int[] functionNums;
+	private int dim;
+	private int maxIterations;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	// seed every job's seed is derived from, so a sweep can be rerun
+	private long seed = new Rng().nextLong();
+	// sinks every finished trial is written to as soon as it completes
+	private List<ResultSink> sinks = new ArrayList<ResultSink>();
+	// whether run keeps the results in memory. a streaming sweep only
+	// needs its sinks, so turning this off keeps memory flat
+	private boolean keepResults = true;
+	// shared by every trial, null runs them all for maxIterations
+	private StoppingCriterion stoppingCriterion;
+
+	public Experiment(double[] cutRatios, double[] mutProbs, double[] crossProbs,
+			int[] numParticles, String[] nbhdTypes, String[] crossMethods,
+			String[] selections, int[] functionNums, int dim, int maxIterations) {
+		this.cutRatios = cutRatios;
+		this.mutProbs = mutProbs;
+		this.crossProbs = crossProbs;
+		this.numParticles = numParticles;
+		this.nbhdTypes = nbhdTypes;
+		this.crossMethods = crossMethods;
+		this.selections = selections;
+		this.functionNums = functionNums;
+		this.dim = dim;
+		this.maxIterations = maxIterations;
+	}
+
+	// expands the grid into one job per cell. the jobs are in the order of
+	// the nested loops cutRatio, mutProb, crossProb, numParticles, nbhdType,
+	// crossMethod, selection, function, and a job's id is its position
+	public List<TrialJob> expand() {
+		List<TrialJob> jobs = new ArrayList<TrialJob>();
+		for (double cutRatio : this.cutRatios) {
+			for (double mutProb : this.mutProbs) {
+				for (double crossProb : this.crossProbs) {
+					for (int n : this.numParticles) {
+						for (String nbhdType : this.nbhdTypes) {
+							for (String crossMethod : this.crossMethods) {
+								for (String sel : this.selections) {
+									for (int functionNum : this.functionNums) {
+										int id = jobs.size();
+										TrialJob job = new TrialJob(id, cutRatio, mutProb, crossProb,
+												n, this.dim, this.maxIterations,
+												nbhdType, crossMethod, sel, functionNum,
+												this.jobSeed(id));
+										job.setStoppingCriterion(this.stoppingCriterion);
+										jobs.add(job);
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return jobs;
+	}
+
+	// seed of the job with the given id, spread out so that
+	// neighbouring ids get unrelated random streams
+	private long jobSeed(int id) {
+		long z = this.seed + (id + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	// runs every job of the grid and returns the results indexed by job id
+	public TrialResult[] run() {
+		return this.run(this.expand());
+	}
+
+	// runs the given jobs, whose ids must be 0 to jobs.size() - 1, and
+	// returns the results indexed by job id. if results are not kept
+	// the array is empty and the results only go to the sinks
+	public TrialResult[] run(List<TrialJob> jobs) {
+		final TrialResult[] results = new TrialResult[this.keepResults ? jobs.size() : 0];
+
+		// longest expected first. the sort is stable so equal jobs keep grid order
+		List<TrialJob> order = new ArrayList<TrialJob>(jobs);
+		Collections.sort(order, Comparator.comparingDouble(TrialJob::getExpectedCost).reversed());
+
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (TrialJob job : order) {
+				futures.add(pool.submit(() -> {
+					TrialResult result = job.run();
+					this.writeToSinks(job, result);
+					// each job writes only its own slot
+					if (this.keepResults) {
+						results[job.getId()] = result;
+					}
+				}));
+			}
+			// waiting on every future also makes the results visible here
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Experiment interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Trial failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return results;
+	}
+
+	// hands a finished trial to every sink, one trial at a time
+	private synchronized void writeToSinks(TrialJob job, TrialResult result) {
+		try {
+			for (ResultSink sink : this.sinks) {
+				sink.write(job, result);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void addSink(ResultSink sink) {
+		this.sinks.add(sink);
+	}
+
+	public boolean isKeepResults() {
+		return keepResults;
+	}
+
+	public void setKeepResults(boolean keepResults) {
+		this.keepResults = keepResults;
+	}
+
+	public StoppingCriterion getStoppingCriterion() {
+		return stoppingCriterion;
+	}
+
+	// see StoppingCriteria. applies to the jobs expanded after it is set
+	public void setStoppingCriterion(StoppingCriterion stoppingCriterion) {
+		this.stoppingCriterion = stoppingCriterion;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	// number of trials run at the same time, the number of cores by default
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+}
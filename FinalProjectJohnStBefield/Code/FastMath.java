@@ -0,0 +1,157 @@
+/*
+ * This file implements the approximations of cos and exp used by the
+ * fast-math mode of the objectives (see Function.setFastMath). Both
+ * split the argument into a point of a small table and a short
+ * remainder, and correct the table value with a polynomial in the
+ * remainder:
+ *
+ *   cosTurns(t) = cos(2 pi t): the table holds cos and sin at 512
+ *                 points per turn, the remainder is at most pi / 512
+ *   exp(x):       the table holds 2^(j / 64), the remainder is at most
+ *                 ln(2) / 128
+ *
+ * The polynomials are accurate far beyond double precision on the
+ * remainder, so the error is the rounding of a few operations:
+ * cosTurns is within 1e-15 of cos(2 pi t) for |t| < 2^54, and exp is
+ * within 3e-16 relative of Math.exp where the result is a normal
+ * double. Run "java FastMath" to measure both, and the objectives in
+ * fast-math mode against the exact ones
+ *
+ * The exact objectives stay the default. Fast-math results differ
+ * from them in the last bits, so runs are only reproducible within
+ * one mode
+ *
+ */
+
+import java.util.Random;
+
+public class FastMath {
+
+	private static final int COS_BITS = 9;
+	private static final int COS_SIZE = 1 << COS_BITS;
+	private static final double[] COS_TABLE = new double[COS_SIZE];
+	private static final double[] SIN_TABLE = new double[COS_SIZE];
+
+	private static final int EXP_BITS = 6;
+	private static final int EXP_SIZE = 1 << EXP_BITS;
+	private static final double[] EXP_TABLE = new double[EXP_SIZE];
+	// ln(2) / 64 split into a part with a short mantissa and the rest,
+	// so n * LN2_HI is exact for the n exp uses
+	private static final double LN2_HI = 0x1.62e42p-7;
+	private static final double LN2_LO = 0x1.fdf473de6af28p-28;
+	private static final double INV_LN2 = EXP_SIZE / Math.log(2.0);
+	// exp overflows above and underflows to 0 below these
+	private static final double EXP_MAX = 709.782712893384;
+	private static final double EXP_MIN = -745.1332191019412;
+
+	static {
+		for (int k = 0; k < COS_SIZE; k++) {
+			COS_TABLE[k] = Math.cos(2.0 * Math.PI * k / COS_SIZE);
+			SIN_TABLE[k] = Math.sin(2.0 * Math.PI * k / COS_SIZE);
+		}
+		for (int j = 0; j < EXP_SIZE; j++) {
+			EXP_TABLE[j] = StrictMath.pow(2.0, (double) j / EXP_SIZE);
+		}
+	}
+
+	private FastMath() {
+	}
+
+	// cos(2 pi t), i.e. the cosine of t turns
+	public static double cosTurns(double t) {
+		// t is split into k / 512 and the angle b of at most pi / 512
+		// left over. scaling by a power of 2 is exact, and the table
+		// index wraps around the whole turns of k
+		double scaled = t * COS_SIZE;
+		double k = Math.rint(scaled);
+		double b = (scaled - k) * (2.0 * Math.PI / COS_SIZE);
+		int index = (int) (long) k & (COS_SIZE - 1);
+		double b2 = b * b;
+		// Taylor polynomials of cos b and sin b, whose next terms are
+		// below 1e-22 for |b| <= pi / 512
+		double cosB = 1.0 - b2 * (0.5 - b2 * (1.0 / 24.0 - b2 * (1.0 / 720.0)));
+		double sinB = b * (1.0 - b2 * (1.0 / 6.0 - b2 * (1.0 / 120.0)));
+		return COS_TABLE[index] * cosB - SIN_TABLE[index] * sinB;
+	}
+
+	public static double exp(double x) {
+		if (!(x < EXP_MAX)) {
+			return x != x ? x : Double.POSITIVE_INFINITY;
+		}
+		if (x < EXP_MIN) {
+			return 0.0;
+		}
+		// x = n ln(2) / 64 + r, and exp(x) = 2^(n / 64) exp(r)
+		double n = Math.rint(x * INV_LN2);
+		double r = (x - n * LN2_HI) - n * LN2_LO;
+		int m = (int) n;
+		// Taylor polynomial of exp r - 1, whose next term is below
+		// 5e-17 for |r| <= ln(2) / 128
+		double p = r * (1.0 + r * (0.5 + r * (1.0 / 6.0 + r * (1.0 / 24.0 + r * (1.0 / 120.0)))));
+		double t = EXP_TABLE[m & (EXP_SIZE - 1)];
+		return Math.scalb(t + t * p, m >> EXP_BITS);
+	}
+
+	// measures the error and speed of the approximations and of the
+	// objectives in fast-math mode against the exact ones
+	public static void main(String[] args) {
+		Random random = new Random(1);
+		int samples = 2000000;
+
+		double cosError = 0.0;
+		for (int s = 0; s < samples; s++) {
+			double t = (random.nextDouble() - 0.5) * Math.pow(2.0, random.nextInt(24) - 4);
+			// t - rint(t) is exact, so the reference is not thrown off by
+			// rounding 2 pi t for large t
+			double exact = Math.cos(2.0 * Math.PI * (t - Math.rint(t)));
+			cosError = Math.max(cosError, Math.abs(cosTurns(t) - exact));
+		}
+		System.out.println("cosTurns: max abs error " + cosError);
+
+		double expError = 0.0;
+		for (int s = 0; s < samples; s++) {
+			double x = (random.nextDouble() - 0.5) * 1400.0;
+			double exact = Math.exp(x);
+			if (exact >= Double.MIN_NORMAL && !Double.isInfinite(exact)) {
+				expError = Math.max(expError, Math.abs(exp(x) - exact) / exact);
+			}
+		}
+		System.out.println("exp: max rel error " + expError);
+
+		// the objectives on points drawn from their initialization range,
+		// see Hybrid.createFunction. the timings are taken after a warm-up
+		int dim = 30;
+		int count = 1000;
+		for (int functionNum = 1; functionNum <= 3; functionNum++) {
+			Function exact = Hybrid.createFunction(functionNum, dim);
+			Function fast = Hybrid.createFunction(functionNum, dim);
+			fast.setFastMath(true);
+			double range = exact.getMaxInitPos();
+			double[] points = new double[count * dim];
+			for (int i = 0; i < points.length; i++) {
+				points[i] = (2.0 * random.nextDouble() - 1.0) * range;
+			}
+			double[] exactValues = new double[count];
+			double[] fastValues = new double[count];
+			long exactNanos = Long.MAX_VALUE;
+			long fastNanos = Long.MAX_VALUE;
+			for (int round = 0; round < 200; round++) {
+				long start = System.nanoTime();
+				exact.evalBatch(points, count, exactValues);
+				long middle = System.nanoTime();
+				fast.evalBatch(points, count, fastValues);
+				long end = System.nanoTime();
+				if (round >= 100) {
+					exactNanos = Math.min(exactNanos, middle - start);
+					fastNanos = Math.min(fastNanos, end - middle);
+				}
+			}
+			double maxError = 0.0;
+			for (int p = 0; p < count; p++) {
+				maxError = Math.max(maxError, Math.abs(exactValues[p] - fastValues[p]));
+			}
+			System.out.println(exact.getFunctionType() + ": max abs error " + maxError + ", exact "
+					+ exactNanos / count + " ns, fast " + fastNanos / count + " ns per point");
+		}
+	}
+}
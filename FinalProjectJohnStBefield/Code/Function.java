@@ -9,9 +9,18 @@
  * 
  * 
  */
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
 public class Function {
 
 	private String functionType;
+	// resolved from functionType once, so eval does not compare names
+	private ObjectiveFunction objective;
+	// the objective without fast math, see setFastMath
+	private ObjectiveFunction exactObjective;
+	private boolean fastMath;
 	private int dimensions;
 	private double minInitPos;
 	private double maxInitPos;
@@ -27,12 +36,30 @@ public class Function {
 	private double phi;
 	private double constrictionFactor;
 
+	// number of times the objective has been evaluated
+	private LongAdder evaluations = new LongAdder();
+
+	// memo and surrogate in front of the objective, null for none
+	private EvaluationCache cache;
+
 	public Function(String functionType, int dimensions, 
 			double minInitPos, double maxInitPos, double minInitVel,
 			double maxInitVel,
 			double phi1, double phi2, double k) {
+		this(functionType, Objectives.get(functionType), dimensions, minInitPos, maxInitPos,
+				minInitVel, maxInitVel, phi1, phi2, k);
+	}
+
+	// creates a function for an objective that does not have to be
+	// registered in Objectives. functionType is only used as its name
+	public Function(String functionType, ObjectiveFunction objective, int dimensions, 
+			double minInitPos, double maxInitPos, double minInitVel,
+			double maxInitVel,
+			double phi1, double phi2, double k) {
 
 		this.functionType = functionType;
+		this.objective = objective;
+		this.exactObjective = objective;
 		this.dimensions = dimensions;
 		this.minInitPos = minInitPos;
 		this.maxInitPos = maxInitPos;
@@ -48,96 +75,130 @@ public class Function {
 
 	//Function that determines which valuation function is run
 	public double eval(double[] values) {
-		if ((this.functionType).equals("rok")) {
-			return this.evalRosenbrock(values);
+		return this.eval(values, 0);
+	}
+
+	//same as above for a point stored in a larger array, such as the flat
+	//blocks of a SwarmState, where the point starts at offset
+	public double eval(double[] values, int offset) {
+		if (this.cache != null) {
+			return this.evalCached(values, offset, Double.POSITIVE_INFINITY);
 		}
-		if ((this.functionType).equals("ack")) {
-			return this.evalAckley(values);
+		this.evaluations.increment();
+		// note that the five functions have global mins of 0.
+		// so if eval method returns a negative number, invalid function name.
+		if (this.objective == null) {
+			return -1.0;
 		}
-		if ((this.functionType).equals("ras")) {
-			return this.evalRastrigin(values);
+		return this.objective.eval(values, offset, this.dimensions);
+	}
+
+	//same as eval(values, offset), where only a value below threshold
+	//is of use. with a surrogate in the cache, a point predicted to be
+	//well above threshold is not evaluated and gets the prediction
+	public double evalScreened(double[] values, int offset, double threshold) {
+		if (this.cache == null) {
+			return this.eval(values, offset);
 		}
-		if ((this.functionType).equals("zak")) {
-			return this.evalZakharov(values);
+		return this.evalCached(values, offset, threshold);
+	}
+
+	//looks the point up in the cache, and evaluates it unless it is
+	//there or the surrogate screens it out
+	private double evalCached(double[] values, int offset, double threshold) {
+		Double known = this.cache.lookup(values, offset);
+		if (known != null) {
+			return known;
 		}
-		if ((this.functionType).equals("grk")) {
-			return this.evalGriewank(values);
+		double predicted = Double.NaN;
+		if (this.cache.hasSurrogate() && threshold < Double.POSITIVE_INFINITY) {
+			predicted = this.cache.predict(values, offset);
+			if (this.cache.skip(predicted, threshold)) {
+				return predicted;
+			}
 		}
+		this.evaluations.increment();
+		double value = this.objective == null ? -1.0 : this.objective.eval(values, offset, this.dimensions);
+		this.cache.store(values, offset, value, predicted);
+		return value;
+	}
 
-		// note that the three functions have global mins of 0.
-		// so if eval method returns a negative number, invalid function name.
-		return -1.0;
+	//evaluates the count points first, first + 1, ... of positions, a
+	//flat array holding one point after another (such as the positions
+	//of a SwarmState), and writes the value of point p to out[p]
+	public void evalBatch(double[] positions, int first, int count, double[] out) {
+		if (this.cache != null) {
+			for (int p = first; p < first + count; p++) {
+				out[p] = this.eval(positions, p * this.dimensions);
+			}
+			return;
+		}
+		this.evaluations.add(count);
+		if (this.objective == null) {
+			Arrays.fill(out, first, first + count, -1.0);
+			return;
+		}
+		this.objective.evalBatch(positions, first * this.dimensions, count, this.dimensions, out, first);
+	}
 
+	//same as above for the first count points
+	public void evalBatch(double[] positions, int count, double[] out) {
+		this.evalBatch(positions, 0, count, out);
 	}
 
 	// returns the value of the Rosenbrock Function with a array
 	// of doubles representing a point with the number of dimensions
 	// inputed. The minimum is 0.0, which occurs at (1.0,...,1.0)
 	public double evalRosenbrock(double[] values) {
-		double answer = 0.0;
-		for (int i = 0; i < this.dimensions - 1; i++) {
-			double y = values[i + 1];
-			double x = values[i];
-			answer += 100.0 * Math.pow(y - x * x, 2.0) + Math.pow(x - 1.0, 2.0);
-		}
-		return answer;
+		return this.evalRosenbrock(values, 0);
+	}
+
+	public double evalRosenbrock(double[] values, int offset) {
+		return Objectives.ROSENBROCK.eval(values, offset, this.dimensions);
 	}
 
 	// returns the value of the Rastrigin Function with a array
 	// of doubles representing a point with the number of dimensions
 	// inputed. The minimum is 0.0, which occurs at (0.0,...,0.0)
 	public double evalRastrigin(double[] values) {
-		double answer = 0.0;
-		for (int i = 0; i < this.dimensions; i++) {
-			double x = values[i];
-			answer += x * x - 10.0 * Math.cos(2.0 * Math.PI * x) + 10.0;
-		}
-		return answer;
+		return this.evalRastrigin(values, 0);
+	}
+
+	public double evalRastrigin(double[] values, int offset) {
+		return Objectives.RASTRIGIN.eval(values, offset, this.dimensions);
 	}
 
 	// returns the value of the Ackley Function with a array
 	// of doubles representing a point with the number of dimensions
 	// inputed. The minimum is 0.0, which occurs at (0.0,...,0.0)
 	public double evalAckley(double[] values) {
-		double firstSum = 0.0;
-		double secondSum = 0.0;
-		for (int i = 0; i < this.dimensions; i++) {
-			double x = values[i];
-			firstSum = firstSum + (x * x);
-			secondSum = Math.cos(2.0 * Math.PI * x);
-		}
-		return -20.0 * Math.exp(-0.2 * Math.sqrt(firstSum / this.dimensions)) - Math.exp(secondSum / this.dimensions)
-				+ 20.0 + Math.E;
+		return this.evalAckley(values, 0);
+	}
+
+	public double evalAckley(double[] values, int offset) {
+		return Objectives.ACKLEY.eval(values, offset, this.dimensions);
 	}
 	
 	// returns the value of the Griewank Function with a array
 	// of doubles representing a point with the number of dimensions
 	// inputed. The minimum is 0.0, which occurs at (0.0,...,0.0)
 	public double evalGriewank(double[] values) {
-		double firstVal = values[0];
-		double firstSum = firstVal * firstVal;
-		double product = Math.cos( firstVal / Math.sqrt(1));
-		for (int i = 1; i < this.dimensions; i++) {
-			double x = values[i];
-			firstSum += x * x;
-			product = product * Math.cos( x/ (Math.sqrt(i+1)));
-		}
-		firstSum = firstSum / 4000;
-		return firstSum - product + 1;
+		return this.evalGriewank(values, 0);
+	}
+
+	public double evalGriewank(double[] values, int offset) {
+		return Objectives.GRIEWANK.eval(values, offset, this.dimensions);
 	}
 	
 	// returns the value of the Zakharov Function with a array
 	// of doubles representing a point with the number of dimensions
 	// inputed. The minimum is 0.0, which occurs at (0.0,...,0.0)
 	public double evalZakharov(double[] values) {
-		double firstSum = 0.0;
-		double secondSum = 0.0;
-		for (int i = 0; i < this.dimensions; i++) {
-			double x = values[i];
-			firstSum = firstSum + (x * x);
-			secondSum = secondSum + (0.5 * (i+1) * x);
-		}
-		return firstSum + Math.pow(secondSum, 2.0) + Math.pow(secondSum, 4.0);
+		return this.evalZakharov(values, 0);
+	}
+
+	public double evalZakharov(double[] values, int offset) {
+		return Objectives.ZAKHAROV.eval(values, offset, this.dimensions);
 	}
 
 	// Getters & Setters
@@ -147,6 +208,52 @@ public class Function {
 
 	public void setFunctionType(String functionType) {
 		this.functionType = functionType;
+		this.setObjective(Objectives.get(functionType));
+	}
+
+	public long getEvaluations() {
+		return evaluations.sum();
+	}
+
+	public void resetEvaluations() {
+		this.evaluations.reset();
+	}
+
+	// restores the count, i.e. when a trial is resumed from a checkpoint
+	public void setEvaluations(long evaluations) {
+		this.evaluations.reset();
+		this.evaluations.add(evaluations);
+	}
+
+	public ObjectiveFunction getObjective() {
+		return objective;
+	}
+
+	public void setObjective(ObjectiveFunction objective) {
+		this.exactObjective = objective;
+		this.objective = this.fastMath ? Objectives.fastMath(objective) : objective;
+	}
+
+	public EvaluationCache getCache() {
+		return cache;
+	}
+
+	// puts cache in front of the objective, null removes it. the
+	// evaluation count only counts true evaluations
+	public void setCache(EvaluationCache cache) {
+		this.cache = cache;
+	}
+
+	public boolean isFastMath() {
+		return fastMath;
+	}
+
+	// evaluates the objective with approximate cosines and exponentials
+	// where it has a fast-math version, see FastMath. off by default,
+	// which keeps the exact results
+	public void setFastMath(boolean fastMath) {
+		this.fastMath = fastMath;
+		this.objective = fastMath ? Objectives.fastMath(this.exactObjective) : this.exactObjective;
 	}
 
 	public int getDimensions() {
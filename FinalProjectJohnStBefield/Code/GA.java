@@ -5,19 +5,29 @@
  * 
  * This class implements the Genetic Algorithm. It contains three different
  * methods of ranking individuals, which are Boltzman selction, tournament
- * selection and ranked selection. It also crosses over solutions when 
+ * selection and ranked selection. Each draws a parent in O(1), from an
+ * alias table built at most once per generation (see AliasTable) or
+ * from a fixed size tournament, so a selection is O(n). It also crosses over solutions when 
  * creating the next generation in either a one point crossover or
  * a uniform crossover. The individuals can then be mutated with a given
  * probabilty
  * 
+ * A GA lives for a whole trial. It keeps its ranking and breeding
+ * buffers and its random numbers from one generation to the next,
+ * and only the iteration dependent state changes between calls to
+ * evolve
+ * 
  */
 
-import java.util.ArrayList;
-import java.util.Random;
 
 public class GA {
 
-	private static int TOURNAMENT_SIZE = 4;
+	// default number of individuals in a tournament, see setTournamentSize
+	static final int TOURNAMENT_SIZE = 2;
+	// default temperatures of boltzmann selection at the start and at the
+	// end of a trial, relative to the spread of the fitness
+	static final double INITIAL_TEMPERATURE = 1.0;
+	static final double FINAL_TEMPERATURE = 0.05;
 
 	private int[] particleIndices;
 	Swarm swarm;
@@ -26,38 +36,106 @@ public class GA {
 	int currIteration;
 	int maxIterations;
 	double iterDependFactor = 5.0;
-	double[][] fitnessValues; 
+	// exponent of the mutation step, depends on the current iteration
+	double iterationDependency = 1.0;
+	// fitness of each particle, by index in the swarm
+	double[] fitnessValues; 
+	private Ranking ranking;
 	
-	// create a population of particles to GA on
-	public GA(Swarm swarm, double cutRatio, int currIteration, int maxIterations) {
+	private int tournamentSize = TOURNAMENT_SIZE;
+	private double initialTemperature = INITIAL_TEMPERATURE;
+	private double finalTemperature = FINAL_TEMPERATURE;
+	// temperature of boltzmann selection at the current iteration
+	private double boltzmannTemperature;
+	
+	// buffers reused by every generation
+	private int[] breedingPool;
+	private double[] weights;
+	// alias table of the rank weights, built once, and of the boltzmann
+	// weights, rebuilt every generation
+	private AliasTable rankTable;
+	private AliasTable boltzmannTable;
+	private Rng rand;
+	// where the time of evolve goes, null when metrics are off
+	private PhaseMetrics metrics;
+	
+	// create a GA that evolves the swarm once per iteration of a trial
+	// the best cutRatio of the swarm are crossed over and mutated
+	public GA(Swarm swarm, double cutRatio, int maxIterations) {
+		this(swarm, cutRatio, maxIterations, new Rng());
+	}
+	
+	// same as above, drawing the GA's random numbers from rand
+	public GA(Swarm swarm, double cutRatio, int maxIterations, Rng rand) {
 		
 		this.swarm = swarm;
-		this.currIteration = currIteration;
 		this.maxIterations = maxIterations;
-		this.sortValues();
+		this.particleDim = swarm.getFunction().getDimensions();
+		int n = swarm.getNumParticles();
+		this.numEliteParticles = (int) Math.round(cutRatio * n);
+		this.particleIndices = new int[n];
+		this.fitnessValues = new double[n];
+		this.ranking = new Ranking(n);
+		this.breedingPool = new int[n];
+		this.weights = new double[n];
+		// rank r (0 is the best) has weight n - r
+		for (int r = 0; r < n; r++) {
+			this.weights[r] = n - r;
+		}
+		this.rankTable = new AliasTable(n);
+		this.rankTable.build(this.weights, n);
+		this.boltzmannTable = new AliasTable(n);
+		this.rand = rand;
+		this.setCurrIteration(0);
 		
 	}
 	
-	//takes the values in the swarm quicksort to sort the particles 
+	// create a population of particles to GA on for a single iteration
+	public GA(Swarm swarm, double cutRatio, int currIteration, int maxIterations) {
+		this(swarm, cutRatio, maxIterations);
+		this.setCurrIteration(currIteration);
+		this.sortValues();
+	}
+	
+	// moves the GA to the given iteration of the trial, which sets how
+	// far mutations can reach and the temperature of boltzmann selection
+	public void setCurrIteration(int currIteration) {
+		this.currIteration = currIteration;
+		double progress = (double) this.currIteration / this.maxIterations;
+		this.iterationDependency = 
+				Math.pow(1 - progress, iterDependFactor);
+		// geometric cooling from the initial to the final temperature
+		this.boltzmannTemperature = this.initialTemperature
+				* Math.pow(this.finalTemperature / this.initialTemperature, progress);
+	}
+	
+	//takes the values in the swarm and ranks all the particles 
 	//by fitness
 	public void sortValues(){
+		this.loadValues();
+		this.ranking.argsort(this.fitnessValues, this.fitnessValues.length);
+		this.ranking.copyTo(this.particleIndices, this.fitnessValues.length);
+	}
+	
+	//same as sortValues, but only the numEliteParticles best particles
+	//are ranked, which is all crossover and mutation need. the rest of
+	//particleIndices is in no particular order
+	public void rankElite(){
+		this.loadValues();
+		this.ranking.topK(this.fitnessValues, this.fitnessValues.length, this.numEliteParticles);
+		this.ranking.copyTo(this.particleIndices, this.fitnessValues.length);
+	}
+	
+	//copies the (cached) fitness of every particle into fitnessValues,
+	//evaluating any particle changed since it was last evaluated first.
+	//in Hybrid's loop there are none, since the PSO step evaluates every
+	//particle before the GA runs
+	private void loadValues(){
+		swarm.evaluateDirty();
 		Particle[] swarmParticles = swarm.getSwarm();
-		// auxiliary code to rank particles by fitness, providing indices
-		//to access the values and a fitness value to sort by
-		//in a 2D array
-		fitnessValues = new double[2][swarmParticles.length];
-		for (int i = 0; i < swarmParticles.length; i++) {
-			fitnessValues[0][i] = swarmParticles[i].eval();
-			fitnessValues[1][i] = i;
-		}
-		QuickSort.quickSort(fitnessValues);
-		
-		// create array of particles, ranked by fitness
-		int[] rankedIndices = new int[swarmParticles.length];
 		for (int i = 0; i < swarmParticles.length; i++) {
-			rankedIndices[i] = (int) fitnessValues[1][i];
+			fitnessValues[i] = swarmParticles[i].getValue();
 		}
-		this.particleIndices = rankedIndices;
 	}
 	
 	//function holds the loop that creates each generation of individuals for the
@@ -67,10 +145,21 @@ public class GA {
 	public void evolve(String crossMethod, double crossProb, double mutateProb, 
 			double mutUpperBound, double mutLowerBound,String sel) {	
 	
+			if (this.metrics != null) {
+				this.evolveTimed(crossMethod, crossProb, mutateProb, mutUpperBound, mutLowerBound, sel);
+				return;
+			}
 			if(sel.equals("rs") || sel.equals("ts") || sel.equals("bs")){
+				// only rank selection needs the full ranking
+				if (sel.equals("rs")) {
+					this.sortValues();
+				} else {
+					this.loadValues();
+				}
 				selection(sel);
-
 			}
+			// rank the (possibly reordered) swarm to find the elite
+			this.rankElite();
 		
 			//Crossover to create the new candidate solutions
 			this.crossover(crossMethod, crossProb);
@@ -79,6 +168,32 @@ public class GA {
 			
 	}
 
+	// same as evolve, adding the time of each step to metrics
+	private void evolveTimed(String crossMethod, double crossProb, double mutateProb,
+			double mutUpperBound, double mutLowerBound, String sel) {
+		long start = System.nanoTime();
+		if (sel.equals("rs") || sel.equals("ts") || sel.equals("bs")) {
+			if (sel.equals("rs")) {
+				this.sortValues();
+			} else {
+				this.loadValues();
+			}
+			long sorted = System.nanoTime();
+			this.metrics.add(PhaseMetrics.GA_SORT, sorted - start);
+			selection(sel);
+			start = System.nanoTime();
+			this.metrics.add(PhaseMetrics.SELECTION, start - sorted);
+		}
+		this.rankElite();
+		long ranked = System.nanoTime();
+		this.metrics.add(PhaseMetrics.GA_SORT, ranked - start);
+		this.crossover(crossMethod, crossProb);
+		long crossed = System.nanoTime();
+		this.metrics.add(PhaseMetrics.CROSSOVER, crossed - ranked);
+		this.mutate(mutateProb, mutUpperBound, mutLowerBound);
+		this.metrics.add(PhaseMetrics.MUTATION, System.nanoTime() - crossed);
+	}
+
 	
 	
 	//implements 1 point crossover between two individuals
@@ -86,14 +201,10 @@ public class GA {
 	//the two swap
 	public void onePointCrossover(int parent1, int parent2) {
 
-        int crossoverIndex = (int) (particleDim * Math.random());
+        SwarmState state = swarm.getState();
+        int crossoverIndex = (int) (particleDim * rand.nextDouble());
         for (int i = crossoverIndex; i < particleDim; i++) {
-            double tempPos = swarm.swarm[parent1].getPosValue(i);
-            swarm.swarm[parent1].setPos(i, swarm.swarm[parent2].getPosValue(i));
-            swarm.swarm[parent2].setPos(i, tempPos);
-            double tempVel = swarm.swarm[parent1].getVelValue(i);
-            swarm.swarm[parent1].setVel(i, swarm.swarm[parent2].getVelValue(i));
-            swarm.swarm[parent2].setVel(i, tempVel);
+            state.swapCoordinate(parent1, parent2, i);
         }
 	}
 
@@ -101,14 +212,10 @@ public class GA {
 	//corresponding values in the two are swapped with some probability,
 	//in this case 0.5
 	public void uniformCrossover(int parent1, int parent2) {
+		SwarmState state = swarm.getState();
 		for (int i = 0; i < particleDim; i++) {
-			if (Math.random() < 0.5) {
-				double tempPos = swarm.swarm[parent1].getPosValue(i);
-				swarm.swarm[parent1].setPos(i, swarm.swarm[parent2].getPosValue(i));
-				swarm.swarm[parent2].setPos(i, tempPos);
-	            double tempVel = swarm.swarm[parent1].getVelValue(i);
-	            swarm.swarm[parent1].setVel(i, swarm.swarm[parent2].getVelValue(i));
-	            swarm.swarm[parent2].setVel(i, tempVel);
+			if (rand.nextDouble() < 0.5) {
+				state.swapCoordinate(parent1, parent2, i);
 			}
 		}
 	}
@@ -128,7 +235,7 @@ public class GA {
 
 			// for every consecutive pair of particles
 			// if crossover occurs
-			if (Math.random() < crossoverProbability) {
+			if (rand.nextDouble() < crossoverProbability) {
 				if (crossoverMethod.equals("1c")) {
 					onePointCrossover(this.particleIndices[2*i], this.particleIndices[2*i+1]);
 				}
@@ -154,128 +261,138 @@ public class GA {
 		}
 	}
 	
-	//function performs one of three types of selection on the individuals of
-		// the population, in this case rank selection where individuals have
-		//a probability of being chosen proportional to their fitness rank in the
-		//population
-		public void rankSelection() {
-		    int dim = particleDim;
-		    Particle[] breedingPool = new Particle[swarm.swarm.length];
-		    int sumOfRanks = (swarm.swarm.length)*(swarm.swarm.length + 1)/2;
-		    for  (int i = 0; i < swarm.swarm.length; i++) {
-		        double marker = sumOfRanks;
-		        Random rand = new Random();
-		        int random = (int)(rand.nextDouble() * (sumOfRanks + 1) + 1);
-		        boolean cont = true;
-		        
-		        for (int y = swarm.swarm.length - 1; y > -1 && cont; y--) {
-		            if (random + y + 1 > marker) {
-		                breedingPool[i] = 
-		                		this.swarm.swarm[(int)fitnessValues[1][swarm.swarm.length - 1 -y]];
-		                cont = false;
-		            }
-		            else {
-		                marker -= (y+1);
-		            }
-		        }
-		    }
-		    this.swarm.swarm = breedingPool;
+	//rank selection: individuals have a probability of being chosen
+	//proportional to their rank in the population, n for the best down
+	//to 1 for the worst. the ranks' weights never change, so their alias
+	//table is built once and every pick is O(1)
+	public void rankSelection() {
+		int n = swarm.swarm.length;
+		int[] breedingPool = this.breedingPool;
+		for (int i = 0; i < n; i++) {
+			breedingPool[i] = this.particleIndices[this.rankTable.sample(rand)];
 		}
-		
-		//the function is an implementation of tournament selection where two individuals
-		//at random are chosen from the population and the one with the higher fitness
-		//is selected for the next generation
-		public void tournamentSelection() {
-			
-			Particle[] newBreedingPool = new Particle[swarm.swarm.length];
-			
-			//Create swarm size new soultions
-			for (int j = 0; j < swarm.swarm.length; j++) {
-				//Choose two random individuals
-				int ind1 = (int) (Math.random() * (swarm.swarm.length - 1));
-				int ind2 = (int) (Math.random() * (swarm.swarm.length - 1));
-				double fit1 = swarm.swarm[ind1].eval();
-				double fit2 = swarm.swarm[ind2].eval();
-				
-				//Add the better one to the new breeding pool
-				if (fit1 <= fit2) {
-					newBreedingPool[j] = swarm.swarm[ind1];
+		this.swarm.select(breedingPool);
+	}
 
-				} else {
-					newBreedingPool[j]= swarm.swarm[ind2];
+	//tournament selection: tournamentSize individuals are drawn at random
+	//(with replacement) and the fittest of them is selected for the next
+	//generation, the first drawn on a tie. reads the cached fitness
+	public void tournamentSelection() {
+		int n = swarm.swarm.length;
+		int[] newBreedingPool = this.breedingPool;
+		double[] fitness = this.fitnessValues;
+		for (int j = 0; j < n; j++) {
+			int winner = rand.nextInt(n);
+			for (int k = 1; k < this.tournamentSize; k++) {
+				int ind = rand.nextInt(n);
+				if (fitness[ind] < fitness[winner]) {
+					winner = ind;
 				}
-
 			}
-			swarm.swarm = newBreedingPool;
+			newBreedingPool[j] = winner;
 		}
+		swarm.select(newBreedingPool);
+	}
 
-		//implements boltzman selection where the individuals are chosen with a
-		// probability based upon e to the power their fitness. Chosen individuals
-		//then advance to the next generation
-		public void boltzmannSelection() {
-			Particle[] newBreedingPool = new Particle[swarm.swarm.length];
-			double sumFit = 0;
-			double e = Math.E;
-			
-			//Sum all the boltzman equation fitnesses
-			for (int x = 0; x < swarm.swarm.length; x++) {
-				sumFit += Math.pow(e, fitnessValues[0][x]);
-			}
-			
-			//Setting the probabilites of individuals
-			double[] prob = new double[swarm.swarm.length];
-			for (int x = 0; x < swarm.swarm.length; x++) {
-				
-				prob[(int)fitnessValues[1][x]] = Math.pow(e, fitnessValues[0][x]) / sumFit;
-			}
-			
-			//This is creating the ranges that correspond to the probability of an individual
-			//being chosen. All the probabilites sum to one, which is why we can split them into sections
-			//from zero to one.
-			double mark = 0;
-			double[] ranges = new double[swarm.swarm.length];
-			for (int x = 0; x < swarm.swarm.length; x++) {
-				ranges[x] = mark;
-				mark += prob[x];
-			}
-			
-			//We now find swarm size random numbers between 0 and 1, and whichever
-			//Individual owns the range that the random number falls in is selected. This is
-			//very similar to rank selection.
-			for (int x = 0; x < swarm.swarm.length; x++) {
-				double location = Math.random();
-				int y;
-				for (y = swarm.swarm.length - 1;  location <  ranges[y]; y--) {
-				}
+	//boltzmann selection: individuals are chosen with a probability
+	//proportional to e^(-fitness / T), so the fitter ones are favoured more
+	//strongly the lower the temperature T. T is boltzmannTemperature times
+	//the spread of the fitness (mean - best), so the selection pressure
+	//does not depend on the scale of the function, and it cools over the
+	//trial (see setBoltzmannTemperatures). the best fitness is subtracted
+	//before exponentiating (log-sum-exp), so the largest weight is 1 and
+	//neither the weights nor their sum overflow
+	public void boltzmannSelection() {
+		int n = swarm.swarm.length;
+		double[] fitness = this.fitnessValues;
+		double best = Double.POSITIVE_INFINITY;
+		double sum = 0.0;
+		for (int x = 0; x < n; x++) {
+			best = Math.min(best, fitness[x]);
+			sum += fitness[x];
+		}
+		double temperature = this.boltzmannTemperature * (sum / n - best);
 
-				newBreedingPool[x] = swarm.swarm[y];
-			}
-			swarm.swarm = newBreedingPool;
+		double[] weights = this.weights;
+		for (int x = 0; x < n; x++) {
+			// all equally fit, or no usable spread: uniform
+			weights[x] = temperature > 0.0 && !Double.isInfinite(temperature)
+					? Math.exp(-(fitness[x] - best) / temperature) : 1.0;
 		}
-	
+		this.boltzmannTable.build(weights, n);
+
+		int[] newBreedingPool = this.breedingPool;
+		for (int x = 0; x < n; x++) {
+			newBreedingPool[x] = this.boltzmannTable.sample(rand);
+		}
+		swarm.select(newBreedingPool);
+	}
+
 	// method that mutates each individual
+	// a mutated coordinate moves towards UB or LB by a random fraction
+	// 1 - u^iterationDependency of the distance, which shrinks towards 0
+	// as the trial goes on, so late mutations are small
 	public void mutate(double mutProb, double UB, double LB) {
+		double[] pos = this.swarm.getState().positions;
 		for (int i = 0; i < numEliteParticles; i++) {
-	        double iterationDependency = Math.pow((1 - this.currIteration/this.maxIterations), iterDependFactor);
-	        for (int j = 0; j < this.swarm.swarm[this.particleIndices[i]].getDim(); j++){
-	            Random rand = new Random();
+	        int offset = this.swarm.getState().offset(this.particleIndices[i]);
+	        for (int j = offset; j < offset + this.swarm.swarm[this.particleIndices[i]].getDim(); j++){
 	            if (rand.nextDouble() < mutProb){
+	            	this.swarm.getState().markDirty(this.particleIndices[i]);
 	                //mutate to UB
 	                if (rand.nextDouble() > 0.5){
-	                	this.swarm.swarm[this.particleIndices[i]].setPos(j, this.swarm.swarm[this.particleIndices[i]].getPosValue(j)
-	                			+ (UB - this.swarm.swarm[this.particleIndices[i]].getPosValue(j))
-	                			* Math.pow(1 - rand.nextDouble(), iterationDependency));
+	                	pos[j] = pos[j] + (UB - pos[j]) * (1 - Math.pow(rand.nextDouble(), iterationDependency));
 	                }
 	                
 	                //mutate to LB
 	                else{
-	                	this.swarm.swarm[this.particleIndices[i]].setPos(j, this.swarm.swarm[this.particleIndices[i]].getPosValue(j) - 
-	                			(this.swarm.swarm[this.particleIndices[i]].getPosValue(j) - LB) * 
-	                			Math.pow((1 - rand.nextDouble()), iterationDependency));
+	                	pos[j] = pos[j] - (pos[j] - LB) * (1 - Math.pow(rand.nextDouble(), iterationDependency));
 	                }
 	            }
 	        }
 		}
 	}
 
+	public Rng getRng() {
+		return rand;
+	}
+
+	public int getTournamentSize() {
+		return tournamentSize;
+	}
+
+	public void setTournamentSize(int tournamentSize) {
+		this.tournamentSize = Math.max(1, tournamentSize);
+	}
+
+	public double getInitialTemperature() {
+		return initialTemperature;
+	}
+
+	public double getFinalTemperature() {
+		return finalTemperature;
+	}
+
+	// the temperature of boltzmann selection cools geometrically from
+	// initialTemperature to finalTemperature over the trial. both are
+	// relative to the spread of the fitness and must be positive
+	public void setBoltzmannTemperatures(double initialTemperature, double finalTemperature) {
+		this.initialTemperature = initialTemperature;
+		this.finalTemperature = finalTemperature;
+		this.setCurrIteration(this.currIteration);
+	}
+
+	public double getBoltzmannTemperature() {
+		return boltzmannTemperature;
+	}
+
+	public PhaseMetrics getMetrics() {
+		return metrics;
+	}
+
+	// accumulates the timings of evolve into metrics from now on, null
+	// turns them off
+	public void setMetrics(PhaseMetrics metrics) {
+		this.metrics = metrics;
+	}
 }
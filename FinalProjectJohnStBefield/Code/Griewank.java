@@ -0,0 +1,66 @@
+/*
+ * The Griewank Function. The minimum is 0.0, which occurs at (0.0,...,0.0)
+ * 
+ */
+
+public class Griewank implements ObjectiveFunction {
+
+	private final boolean fastMath;
+	private volatile double[] scales = new double[0];
+
+	public Griewank() {
+		this(false);
+	}
+
+	// fastMath approximates the cosines, see FastMath
+	public Griewank(boolean fastMath) {
+		this.fastMath = fastMath;
+	}
+
+	public double eval(double[] values, int offset, int dim) {
+		double[] scales = this.scales(dim);
+		double firstVal = values[offset];
+		double firstSum = firstVal * firstVal;
+		double product = this.cosine(firstVal, scales[0]);
+		for (int i = 1; i < dim; i++) {
+			double x = values[offset + i];
+			firstSum += x * x;
+			product = product * this.cosine(x, scales[i]);
+		}
+		firstSum = firstSum / 4000;
+		return firstSum - product + 1;
+	}
+
+	// cos(x / sqrt(i + 1)), where scale is the entry i of scales
+	private double cosine(double x, double scale) {
+		return this.fastMath ? FastMath.cosTurns(x * scale) : Math.cos(x / scale);
+	}
+
+	// the table of Math.sqrt(i + 1) for i < dim (at least), or of
+	// 1 / (2 pi sqrt(i + 1)) with fastMath, so the square roots are not
+	// taken for every coordinate of every point. an entry does not depend
+	// on dim, so the table only grows and trials of different dims share
+	// it. it is replaced, never changed, so threads can share it
+	private double[] scales(int dim) {
+		double[] scales = this.scales;
+		if (scales.length < dim) {
+			// grown under the lock, so a smaller table never replaces a
+			// larger one
+			synchronized (this) {
+				scales = this.scales;
+				if (scales.length < dim) {
+					scales = new double[dim];
+					for (int i = 0; i < dim; i++) {
+						scales[i] = this.fastMath ? 1.0 / (2.0 * Math.PI * Math.sqrt(i + 1)) : Math.sqrt(i + 1);
+					}
+					this.scales = scales;
+				}
+			}
+		}
+		return scales;
+	}
+
+	public boolean isFastMath() {
+		return fastMath;
+	}
+}
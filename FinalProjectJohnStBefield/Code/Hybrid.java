@@ -1,27 +1,34 @@
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class Hybrid {
 
 	
 	// initialization values: [minInitPos, maxInitPos, minInitVel, maxInitVel]
-	private static double[] ROK_INIT_RANGES = new double[]{15.0, 30.0, -2.0, 2.0};
-	private static double[] ACK_INIT_RANGES = new double[]{16.0, 32.0, -2.0, 4.0};
-	private static double[] RAS_INIT_RANGES = new double[]{2.56, 5.12, -2.0, 4.0};
-	private static double[] GRK_INIT_RANGES = new double[]{300.0, 600.0, -10.0, 10.0};
-	private static double[] ZAK_INIT_RANGES = new double[]{15.0, 30.0, -2.0, 4.0};
+	// these are shared by every hybrid, so they are final and never
+	// modified, which lets trials run concurrently
+	private static final double[] ROK_INIT_RANGES = new double[]{15.0, 30.0, -2.0, 2.0};
+	private static final double[] ACK_INIT_RANGES = new double[]{16.0, 32.0, -2.0, 4.0};
+	private static final double[] RAS_INIT_RANGES = new double[]{2.56, 5.12, -2.0, 4.0};
+	private static final double[] GRK_INIT_RANGES = new double[]{300.0, 600.0, -10.0, 10.0};
+	private static final double[] ZAK_INIT_RANGES = new double[]{15.0, 30.0, -2.0, 4.0};
 	
-	private static ArrayList<String> FUNCTIONS = 
-			new ArrayList<String>(Arrays.asList("rok", "ack", "ras", "grk", "zak"));
-	private static double[][] INIT_RANGES = new double[][]{ROK_INIT_RANGES, 
+	private static final List<String> FUNCTIONS = 
+			Collections.unmodifiableList(Arrays.asList("rok", "ack", "ras", "grk", "zak"));
+	private static final double[][] INIT_RANGES = new double[][]{ROK_INIT_RANGES, 
 		ACK_INIT_RANGES, 
 		RAS_INIT_RANGES, GRK_INIT_RANGES, ZAK_INIT_RANGES};
 	
 	// personal best acceleration coefficient
-	private static double PHI_1 = 2.05;
+	private static final double PHI_1 = 2.05;
 	// global best acceleration coefficient
-	private static double PHI_2 = 2.05;
-	private static double K = 1.0;
+	private static final double PHI_2 = 2.05;
+	private static final double K = 1.0;
 	
 
 	private int dim;
@@ -33,6 +40,35 @@ public class Hybrid {
 	private String nbhdType;
 	private String crossMethod;
 	private String sel;
+	// threads used for the particle updates of the swarm, 1 is sequential
+	private int numThreads = 1;
+	// nbhd sizes of the "ri" and "vn" topologies
+	private int ringNbhdSize = 3;
+	private int vnDist = 1;
+	// ends a trial before maxIterations, null to always run them all
+	private StoppingCriterion stoppingCriterion;
+	// file trials are checkpointed to, null for none, and how often
+	private File checkpointFile;
+	private int checkpointIterations;
+	private double checkpointSeconds;
+	// whether the objectives approximate cos and exp, see FastMath
+	private boolean fastMath;
+	// memo and surrogate of an EvaluationCache per trial, 0 for none
+	private int cacheCapacity;
+	private int surrogateArchiveSize;
+	private int surrogateNeighbours = 5;
+	private double screenMargin = 0.1;
+	// whether trials collect PhaseMetrics and JFR events
+	private boolean metricsEnabled;
+	// tournament size and boltzmann temperatures of the GA's selection
+	private int tournamentSize = GA.TOURNAMENT_SIZE;
+	private double initialTemperature = GA.INITIAL_TEMPERATURE;
+	private double finalTemperature = GA.FINAL_TEMPERATURE;
+	// seed the swarm's and GA's random numbers are derived from. unless
+	// one is set, every trial draws its own from seeds
+	private long seed;
+	private boolean seedSet;
+	private final Rng seeds = new Rng();
 	
 	//initializes values in a hybrid
 	public Hybrid(double cutRatio, double mutProb, double crossProb,
@@ -66,53 +102,411 @@ public class Hybrid {
 	//from the initializer and the given function
 	//functionNum corresponds to, in order
 	//("rok", "ack", "ras", "grk", "zak")
+	//returns the stats in the layout of TrialResult.toStats
 	public double[][] trial(int functionNum) {
+		return this.runTrial(functionNum).toStats();
+	}
+	
+	//same as trial, returning the result as a TrialResult
+	//everything a trial uses is created here, so any number of
+	//trials can run at the same time on different threads
+	public TrialResult runTrial(int functionNum) {
+		Trial trial = this.createTrial(functionNum, this.nextSeed());
+		Checkpoint checkpoint = null;
+		if (this.checkpointFile != null) {
+			try {
+				checkpoint = Checkpoint.create(this.checkpointFile, this.checkpointHeader(trial),
+						trial.checkpointSize());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return this.run(trial, checkpoint);
+	}
+	
+	//the seed of the next trial: the one set, or a fresh one so that
+	//repeated trials are independent runs
+	private long nextSeed() {
+		if (this.seedSet) {
+			return this.seed;
+		}
+		synchronized (this.seeds) {
+			return this.seeds.nextLong();
+		}
+	}
+	
+	//continues the trial of the latest checkpoint in checkpointFile and
+	//carries on checkpointing to it. the hybrid must have the parameters
+	//of the one that wrote it, and the result is the same as if the
+	//trial had never stopped
+	public TrialResult resumeTrial(File checkpointFile) throws IOException {
+		Checkpoint checkpoint = Checkpoint.open(checkpointFile);
+		Trial trial;
+		boolean read = false;
+		try {
+			long[] header = checkpoint.getHeader();
+			trial = this.createTrial((int) header[0], header[1]);
+			if (!Arrays.equals(header, this.checkpointHeader(trial))
+					|| checkpoint.getPayloadSize() != trial.checkpointSize()) {
+				throw new IOException("Checkpoint was written by a hybrid with other parameters");
+			}
+			trial.readCheckpoint(checkpoint.latest());
+			read = true;
+		} finally {
+			//until run owns the checkpoint, any failure closes it here
+			if (!read) {
+				checkpoint.close();
+			}
+		}
+		return this.run(trial, checkpoint);
+	}
+	
+	//creates the function, swarm and GA of a trial
+	private Trial createTrial(int functionNum, long seed) {
+		
+		double[] trace = new double[maxIterations/TrialResult.TRACE_INTERVAL];
+		Function function = createFunction(functionNum, this.dim);
+		function.setFastMath(this.fastMath);
+		if (this.cacheCapacity > 0 || this.surrogateArchiveSize > 0) {
+			function.setCache(new EvaluationCache(this.dim, this.cacheCapacity, this.surrogateArchiveSize,
+					this.surrogateNeighbours, this.screenMargin));
+		}
 		
-		// functionNum, cutRatio, gBest value, gBest iteration, runTime
-		double[][] trialStats = new double[2][maxIterations/500];
+		final long startTime = System.nanoTime();
+		
+		//creates swarm, and the GA that evolves it every iteration
+		Rng seeds = new Rng(seed);
+		Swarm swarm = new Swarm(this.numParticles, function, seeds.nextLong());
+		swarm.setRingNbhdSize(this.ringNbhdSize);
+		swarm.setVnDist(this.vnDist);
+		swarm.createNbhds(this.nbhdType);
+		GA pop = new GA(swarm, this.cutRatio, this.maxIterations, seeds.split());
+		pop.setTournamentSize(this.tournamentSize);
+		pop.setBoltzmannTemperatures(this.initialTemperature, this.finalTemperature);
+		
+		Trial trial = new Trial(functionNum, seed, function, swarm, pop, trace);
+		trial.setElapsedNanos(System.nanoTime() - startTime);
+		return trial;
+	}
+	
+	//creates function number functionNum with its initialization ranges
+	public static Function createFunction(int functionNum, int dim) {
 		String fType = FUNCTIONS.get(functionNum);
 		double minP = INIT_RANGES[functionNum][0];
 		double maxP = INIT_RANGES[functionNum][1];
 		double minV = INIT_RANGES[functionNum][2];
 		double maxV = INIT_RANGES[functionNum][3];
+		return new Function(fType, dim, minP, maxP, minV, maxV, PHI_1, PHI_2, K);
+	}
+	
+	//identifies the trial and every parameter that shapes its checkpoints
+	//or its dynamics, so a trial is only resumed by an equal hybrid. the
+	//doubles are stored as their bits
+	private long[] checkpointHeader(Trial trial) {
+		return new long[] { trial.getFunctionNum(), trial.getSeed(), this.numParticles, this.dim,
+				this.maxIterations, code(this.nbhdType), code(this.crossMethod), code(this.sel),
+				Double.doubleToLongBits(this.cutRatio), Double.doubleToLongBits(this.mutProb),
+				Double.doubleToLongBits(this.crossProb), this.ringNbhdSize, this.vnDist, this.tournamentSize,
+				Double.doubleToLongBits(this.initialTemperature), Double.doubleToLongBits(this.finalTemperature),
+				this.fastMath ? 1 : 0, this.cacheCapacity, this.surrogateArchiveSize, this.surrogateNeighbours,
+				Double.doubleToLongBits(this.screenMargin) };
+	}
 	
-		//creates function
-		Function function = new Function(fType, this.dim, minP, maxP, minV, maxV, PHI_1, PHI_2, K);
+	//packs the first 4 chars of s into a long
+	private static long code(String s) {
+		long code = 0;
+		for (int i = 0; i < Math.min(4, s.length()); i++) {
+			code = (code << 16) | s.charAt(i);
+		}
+		return code;
+	}
+	
+	//iterates the trial from where it is up to maxIterations or until
+	//the stopping criterion is met, checkpointing it if checkpoint is
+	//not null
+	private TrialResult run(Trial trial, Checkpoint checkpoint) {
+		
+		Function function = trial.getFunction();
+		Swarm swarm = trial.getSwarm();
+		GA pop = trial.getGa();
+		double[] trace = trial.getTrace();
 		double mutLB = function.getMinInitPos();
 		double mutUB = function.getMaxInitPos();
+		swarm.setNumThreads(this.numThreads);
 		
-		final long startTime = System.nanoTime();
+		final long startTime = System.nanoTime() - trial.getElapsedNanos();
 		
-		//creates swarm
-		Swarm swarm = new Swarm(this.numParticles, function);
-		swarm.createNbhds(this.nbhdType);
+		int iterationNumOfGBest = trial.getGlobalBestIteration();
+		int iterations = trial.getIterations();
+		String stopReason = StoppingCriteria.MAX_ITERATIONS;
+		TrialProgress progress = new TrialProgress();
+		int lastCheckpointIteration = iterations;
+		long lastCheckpointTime = System.nanoTime();
 		
-		int iterationNumOfGBest = 0;
+		PhaseMetrics metrics = null;
+		long startBytes = 0;
+		if (this.metricsEnabled) {
+			metrics = new PhaseMetrics();
+			swarm.setMetrics(metrics);
+			pop.setMetrics(metrics);
+			startBytes = allocatedBytes();
+		}
+		long startEvaluations = function.getEvaluations();
 		
-		//iterates through iterating swarm and creating
-		//a GA of the cut ratio size each time and 
-		//running it with parts of the swarm
-		for (int i = 0; i < maxIterations; i++) {
-	
-			if (swarm.singleIteration()) {
-				iterationNumOfGBest = i;
+		try {
+			//iterates through iterating swarm and running
+			//the GA on the cut ratio of the swarm each time
+			for (int i = iterations; i < maxIterations; i++) {
+				IterationEvent event = null;
+				if (metrics != null) {
+					event = new IterationEvent();
+					event.begin();
+				}
+		
+				boolean newGlobalBest = swarm.singleIteration();
+				if (newGlobalBest) {
+					iterationNumOfGBest = i;
+				}
+				pop.setCurrIteration(i);
+				pop.evolve(this.crossMethod, this.crossProb, this.mutProb, mutUB, mutLB, sel);
+				if (event != null) {
+					event.end();
+					if (event.shouldCommit()) {
+						event.iteration = i;
+						event.globalBestValue = swarm.getGlobalBestValue();
+						event.newGlobalBest = newGlobalBest;
+						event.commit();
+					}
+				}
+				if(i%TrialResult.TRACE_INTERVAL == 0 && i/TrialResult.TRACE_INTERVAL < trace.length) {
+					trace[i/TrialResult.TRACE_INTERVAL] = swarm.getGlobalBestValue();
+				}
+				iterations = i + 1;
+				
+				//stops early if the stopping criterion is met
+				if (this.stoppingCriterion != null) {
+					progress.update(iterations, swarm.getGlobalBestValue(), iterationNumOfGBest,
+							function.getEvaluations(), System.nanoTime() - startTime);
+					String reason = this.stoppingCriterion.check(progress);
+					if (reason != null) {
+						stopReason = reason;
+						break;
+					}
+				}
+				
+				//checkpoints every checkpointIterations iterations and
+				//every checkpointSeconds seconds, whichever are set
+				if (checkpoint != null && iterations < maxIterations) {
+					long now = System.nanoTime();
+					if ((this.checkpointIterations > 0 && iterations - lastCheckpointIteration >= this.checkpointIterations)
+							|| (this.checkpointSeconds > 0 && now - lastCheckpointTime >= this.checkpointSeconds * 1000000000.0)) {
+						trial.setIterations(iterations);
+						trial.setGlobalBestIteration(iterationNumOfGBest);
+						trial.setElapsedNanos(now - startTime);
+						trial.writeCheckpoint(checkpoint.begin());
+						checkpoint.commit();
+						lastCheckpointIteration = iterations;
+						lastCheckpointTime = now;
+					}
+				}
 			}
-			GA pop = new GA(swarm, this.cutRatio, i, this.maxIterations);
-			pop.evolve(this.crossMethod, this.crossProb, this.mutProb, mutLB, mutUB, sel);
-			if(i%500 == 0) {
-				trialStats[1][i/500] = swarm.getGlobalBestValue();
+		} finally {
+			swarm.shutdown();
+			swarm.setMetrics(null);
+			pop.setMetrics(null);
+			if (checkpoint != null) {
+				try {
+					checkpoint.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
 			}
 		}
 		
 		final double runTime = (System.nanoTime() - startTime) / 1000000000.0;
 		
-		trialStats[0][0] = swarm.getGlobalBestValue();
-		trialStats[0][1] = this.cutRatio;
-		trialStats[0][2] = functionNum;
-		trialStats[0][3] = iterationNumOfGBest;
-		trialStats[0][4] = runTime;
+		//the global best no longer changes after an early stop
+		for (int t = (iterations + TrialResult.TRACE_INTERVAL - 1) / TrialResult.TRACE_INTERVAL; t < trace.length; t++) {
+			trace[t] = swarm.getGlobalBestValue();
+		}
+		
+		TrialResult result = new TrialResult(trial.getFunctionNum(), this.cutRatio, trial.getSeed(), swarm.getGlobalBestValue(),
+				iterationNumOfGBest, runTime, function.getEvaluations(), trace, iterations, stopReason);
 		
-		return trialStats;
+		if (metrics != null) {
+			metrics.addIterations(iterations - trial.getIterations());
+			metrics.setEvaluations(function.getEvaluations() - startEvaluations);
+			if (startBytes >= 0) {
+				metrics.setAllocatedBytes(allocatedBytes() - startBytes);
+			}
+			result.setMetrics(metrics);
+			TrialMetricsEvent.commit(trial.getFunctionNum(), metrics);
+		}
+		if (function.getCache() != null) {
+			result.setCacheStats(function.getCache().getStats());
+		}
+		return result;
+
+	}
+
+	//bytes allocated so far by the current thread, -1 if the JVM cannot
+	//tell
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+			if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+				return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	// number of threads for the particle updates, see Swarm.setNumThreads
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	public int getRingNbhdSize() {
+		return ringNbhdSize;
+	}
+
+	public void setRingNbhdSize(int ringNbhdSize) {
+		this.ringNbhdSize = ringNbhdSize;
+	}
+
+	public int getVnDist() {
+		return vnDist;
+	}
+
+	public void setVnDist(int vnDist) {
+		this.vnDist = vnDist;
+	}
+
+	public StoppingCriterion getStoppingCriterion() {
+		return stoppingCriterion;
+	}
+
+	// see StoppingCriteria, null runs every trial for maxIterations
+	public void setStoppingCriterion(StoppingCriterion stoppingCriterion) {
+		this.stoppingCriterion = stoppingCriterion;
+	}
+
+	public File getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	public int getCheckpointIterations() {
+		return checkpointIterations;
+	}
+
+	public double getCheckpointSeconds() {
+		return checkpointSeconds;
+	}
+
+	// checkpoints trials to file every iterations iterations and every
+	// seconds seconds. either can be 0 to only use the other. a null
+	// file turns checkpointing off
+	public void setCheckpoint(File file, int iterations, double seconds) {
+		this.checkpointFile = file;
+		this.checkpointIterations = iterations;
+		this.checkpointSeconds = seconds;
+	}
+
+	public int getTournamentSize() {
+		return tournamentSize;
+	}
+
+	// individuals per tournament of tournament selection ("ts"), 2 by
+	// default
+	public void setTournamentSize(int tournamentSize) {
+		this.tournamentSize = tournamentSize;
+	}
+
+	public double getInitialTemperature() {
+		return initialTemperature;
+	}
+
+	public double getFinalTemperature() {
+		return finalTemperature;
+	}
+
+	// temperatures boltzmann selection ("bs") cools between over a
+	// trial, see GA.setBoltzmannTemperatures
+	public void setBoltzmannTemperatures(double initialTemperature, double finalTemperature) {
+		this.initialTemperature = initialTemperature;
+		this.finalTemperature = finalTemperature;
+	}
+
+	public boolean isFastMath() {
+		return fastMath;
+	}
+
+	// evaluates with the fast-math objectives, see Function.setFastMath.
+	// off by default, which keeps the exact results for publication runs
+	public void setFastMath(boolean fastMath) {
+		this.fastMath = fastMath;
+	}
+
+	public int getCacheCapacity() {
+		return cacheCapacity;
+	}
+
+	// memoises the values of the last capacity points of each trial, see
+	// EvaluationCache. 0, the default, turns the memo off
+	public void setEvaluationCache(int capacity) {
+		this.cacheCapacity = capacity;
+	}
+
+	public int getSurrogateArchiveSize() {
+		return surrogateArchiveSize;
+	}
+
+	public int getSurrogateNeighbours() {
+		return surrogateNeighbours;
+	}
+
+	public double getScreenMargin() {
+		return screenMargin;
+	}
+
+	// pre-screens the particles of each trial with a surrogate over the
+	// last archiveSize evaluated points, predicting from the neighbours
+	// nearest ones, and skips those predicted to be worse than their
+	// individual best by more than screenMargin of it, see
+	// EvaluationCache. an archiveSize of 0, the default, turns it off
+	public void setSurrogate(int archiveSize, int neighbours, double screenMargin) {
+		this.surrogateArchiveSize = archiveSize;
+		this.surrogateNeighbours = neighbours;
+		this.screenMargin = screenMargin;
+	}
+
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+
+	// collects PhaseMetrics on every trial's result and emits JFR
+	// events, see IterationEvent and TrialMetricsEvent. off by default
+	public void setMetricsEnabled(boolean metricsEnabled) {
+		this.metricsEnabled = metricsEnabled;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public boolean isSeedSet() {
+		return seedSet;
+	}
 
+	// runs every trial from seed, so they all repeat the same run. the
+	// seed a trial used is in its TrialResult
+	public void setSeed(long seed) {
+		this.seed = seed;
+		this.seedSet = true;
 	}
 }
@@ -0,0 +1,163 @@
+/*
+ * This file implements one island of an IslandModel: a swarm and the
+ * GA evolving it, run on a thread of its own. Every migration
+ * interval the island sends copies of its best particles to the
+ * mailboxes of its neighbouring islands, and replaces its worst
+ * particles with better migrants from its own mailbox
+ * 
+ */
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Island implements Callable<Void> {
+
+	private int id;
+	private Function function;
+	private Swarm swarm;
+	private GA ga;
+	private IslandModel model;
+
+	private Mailbox inbox;
+	private Mailbox[] neighbours = new Mailbox[0];
+	// set once the stopping criterion is met, which stops every island
+	private AtomicReference<String> stopReason;
+	// progress of the whole run, which the island reports to
+	private IslandProgress progress;
+
+	private Ranking ranking;
+	private double[] trace;
+	private volatile int iterations; // read by the sender of a worker
+	private int globalBestIteration;
+
+	public Island(int id, Function function, Swarm swarm, GA ga, IslandModel model,
+			AtomicReference<String> stopReason) {
+		this.id = id;
+		this.function = function;
+		this.swarm = swarm;
+		this.ga = ga;
+		this.model = model;
+		this.stopReason = stopReason;
+		this.inbox = new Mailbox(model.getMailboxCapacity());
+		this.ranking = new Ranking(swarm.getNumParticles());
+		this.trace = new double[model.getMaxIterations() / TrialResult.TRACE_INTERVAL];
+	}
+
+	// runs the island until maxIterations or until any island stops
+	public Void call() {
+		double mutLB = this.function.getMinInitPos();
+		double mutUB = this.function.getMaxInitPos();
+		int interval = Math.max(1, this.model.getMigrationInterval());
+
+		for (int i = 0; i < this.model.getMaxIterations() && this.stopReason.get() == null; i++) {
+			if (this.swarm.singleIteration()) {
+				this.globalBestIteration = i;
+			}
+			this.ga.setCurrIteration(i);
+			this.ga.evolve(this.model.getCrossMethod(), this.model.getCrossProb(), this.model.getMutProb(),
+					mutUB, mutLB, this.model.getSel());
+			if (i % TrialResult.TRACE_INTERVAL == 0 && i / TrialResult.TRACE_INTERVAL < this.trace.length) {
+				this.trace[i / TrialResult.TRACE_INTERVAL] = this.swarm.getGlobalBestValue();
+			}
+			this.iterations = i + 1;
+
+			if (this.iterations % interval == 0) {
+				this.emigrate();
+				this.immigrate();
+			}
+
+			if (this.progress != null) {
+				this.progress.update(this.id, this.iterations, this.function.getEvaluations(),
+						this.swarm.getGlobalBestValue());
+			}
+		}
+
+		// the global best no longer changes after an early stop
+		for (int t = (this.iterations + TrialResult.TRACE_INTERVAL - 1) / TrialResult.TRACE_INTERVAL; t < this.trace.length; t++) {
+			this.trace[t] = this.swarm.getGlobalBestValue();
+		}
+		return null;
+	}
+
+	// sends copies of the island's best individual bests to its neighbours
+	private void emigrate() {
+		SwarmState state = this.swarm.getState();
+		int n = this.swarm.getNumParticles();
+		int numMigrants = Math.min(this.model.getNumMigrants(), n);
+		int[] ranked = this.ranking.topK(state.bestValues, n, numMigrants);
+		int dim = state.getDim();
+		for (int k = 0; k < numMigrants; k++) {
+			int p = ranked[k];
+			for (Mailbox neighbour : this.neighbours) {
+				double[] position = new double[dim];
+				System.arraycopy(state.bestPositions, state.offset(p), position, 0, dim);
+				neighbour.offer(new Migrant(position, state.bestValues[p]));
+			}
+		}
+	}
+
+	// replaces the island's worst particles with the migrants that are
+	// better than them
+	private void immigrate() {
+		Migrant migrant = this.inbox.poll();
+		if (migrant == null) {
+			return;
+		}
+		SwarmState state = this.swarm.getState();
+		int n = this.swarm.getNumParticles();
+		int[] ranked = this.ranking.argsort(state.bestValues, n);
+		int worst = n - 1;
+		while (migrant != null) {
+			if (worst >= 0 && migrant.getValue() < state.bestValues[ranked[worst]]) {
+				this.swarm.replaceParticle(ranked[worst], migrant.getPosition(), 0, migrant.getValue());
+				worst--;
+			}
+			migrant = this.inbox.poll();
+		}
+	}
+
+	// Getters & Setters
+
+	public int getId() {
+		return id;
+	}
+
+	public Swarm getSwarm() {
+		return swarm;
+	}
+
+	public Function getFunction() {
+		return function;
+	}
+
+	public Mailbox getInbox() {
+		return inbox;
+	}
+
+	public GA getGa() {
+		return ga;
+	}
+
+	// the mailboxes this island sends its migrants to
+	public void setNeighbours(Mailbox[] neighbours) {
+		this.neighbours = neighbours;
+	}
+
+	// the aggregate the island reports its progress to after every
+	// iteration, null for none (a worker reports to its coordinator)
+	public void setProgress(IslandProgress progress) {
+		this.progress = progress;
+	}
+
+	public double[] getTrace() {
+		return trace;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public int getGlobalBestIteration() {
+		return globalBestIteration;
+	}
+}
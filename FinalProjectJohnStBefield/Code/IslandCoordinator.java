@@ -0,0 +1,363 @@
+/*
+ * This file implements the coordinator of the multi-process island
+ * model. Every island of an IslandModel runs in an IslandWorker
+ * process, on this machine or another, connected over TCP. The
+ * coordinator sends each worker the config of its island, forwards
+ * the migrants it receives to the island's neighbours (see
+ * IslandModel) and collects the results, see IslandProtocol
+ *
+ * A worker that disconnects or fails is dropped: migrants are routed
+ * around it and its last reported best still counts. The trial only
+ * fails if every worker does
+ *
+ * Run with "java IslandCoordinator <numWorkers> <functionNum> [port]"
+ * to start that many workers on this machine and print the result
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class IslandCoordinator {
+
+	private IslandModel model;
+	private ServerSocket server;
+	private int acceptTimeoutMillis = 60000;
+
+	private List<Connection> connections = new ArrayList<Connection>();
+	private AtomicReference<String> stopReason = new AtomicReference<String>();
+	private TrialProgress progress = new TrialProgress();
+	private double globalBestValue = Double.MAX_VALUE;
+	private int globalBestIteration;
+	private long startTime;
+	// seed of the trial, see IslandModel.nextSeed
+	private long seed;
+
+	// listens on port (0 for any free port) for the workers of the
+	// islands of model, one per entry of its nbhdTypes
+	public IslandCoordinator(IslandModel model, int port) throws IOException {
+		this.model = model;
+		this.server = new ServerSocket(port);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int numWorkers = Integer.parseInt(args[0]);
+		int functionNum = Integer.parseInt(args[1]);
+		int port = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+		String[] nbhdTypes = new String[numWorkers];
+		for (int k = 0; k < numWorkers; k++) {
+			nbhdTypes[k] = "vn";
+		}
+		IslandModel model = new IslandModel(0.2, 0.05, 1.0, 30, 30, 10000, nbhdTypes, "1c", "none");
+		IslandCoordinator coordinator = new IslandCoordinator(model, port);
+		coordinator.startLocalWorkers(numWorkers);
+		TrialResult result = coordinator.runTrial(functionNum);
+		System.out.println("gBest: " + result.getGlobalBestValue() + ". Iterations: " + result.getIterations()
+				+ ". Evaluations: " + result.getEvaluations() + ". Run time: " + result.getRunTime()
+				+ ". Stop: " + result.getStopReason());
+	}
+
+	// starts count IslandWorker processes on this machine, with the
+	// classpath of this JVM
+	public List<Process> startLocalWorkers(int count) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		List<Process> workers = new ArrayList<Process>();
+		for (int k = 0; k < count; k++) {
+			ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+					"IslandWorker", "localhost", String.valueOf(this.getPort()));
+			workers.add(builder.inheritIO().start());
+		}
+		return workers;
+	}
+
+	// waits for the workers, runs the islands on function functionNum
+	// (see Hybrid.trial) and returns the result in the form of
+	// IslandModel.runTrial. workers that do not connect within the
+	// accept timeout are left out
+	public TrialResult runTrial(int functionNum) throws IOException {
+		String[] nbhdTypes = this.model.getNbhdTypes();
+		this.startTime = System.nanoTime();
+		this.seed = this.model.nextSeed();
+		this.server.setSoTimeout(this.acceptTimeoutMillis);
+		try {
+			for (int k = 0; k < nbhdTypes.length; k++) {
+				Socket socket = this.server.accept();
+				Connection connection = new Connection(k, socket);
+				IslandProtocol.writeConfig(connection.out, k, functionNum, this.model.islandSeed(this.seed, k),
+						this.model, nbhdTypes[k]);
+				this.connections.add(connection);
+			}
+		} catch (SocketTimeoutException e) {
+			System.err.println("Only " + this.connections.size() + " of " + nbhdTypes.length + " workers connected");
+		} finally {
+			this.server.close();
+		}
+		if (this.connections.isEmpty()) {
+			throw new IOException("No worker connected");
+		}
+
+		List<Thread> readers = new ArrayList<Thread>();
+		for (final Connection connection : this.connections) {
+			Thread reader = new Thread(() -> this.receive(connection), "coordinator-" + connection.id);
+			reader.start();
+			readers.add(reader);
+		}
+		for (Thread reader : readers) {
+			try {
+				reader.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the workers", e);
+			}
+		}
+		final double runTime = (System.nanoTime() - this.startTime) / 1000000000.0;
+
+		return this.collect(functionNum, runTime);
+	}
+
+	// combines the results of the workers. the trace and global best
+	// iteration come from the workers that finished
+	private TrialResult collect(int functionNum, double runTime) throws IOException {
+		Connection best = null;
+		double[] trace = null;
+		long evaluations = 0;
+		int iterations = 0;
+		for (Connection connection : this.connections) {
+			evaluations += connection.evaluations;
+			iterations = Math.max(iterations, connection.iterations);
+			if (best == null || connection.bestValue < best.bestValue) {
+				best = connection;
+			}
+			if (connection.done) {
+				if (trace == null) {
+					trace = connection.trace.clone();
+				}
+				for (int t = 0; t < trace.length; t++) {
+					trace[t] = Math.min(trace[t], connection.trace[t]);
+				}
+			}
+		}
+		if (trace == null) {
+			throw new IOException("Every worker failed");
+		}
+		String reason = this.stopReason.get() != null ? this.stopReason.get() : StoppingCriteria.MAX_ITERATIONS;
+		int bestIteration = best.done ? best.globalBestIteration : best.iterations;
+		return new TrialResult(functionNum, this.model.getCutRatio(), this.seed, best.bestValue,
+				bestIteration, runTime, evaluations, trace, iterations, reason);
+	}
+
+	// handles the messages of a worker until it is done or fails
+	private void receive(Connection connection) {
+		List<Migrant> migrants = new ArrayList<Migrant>();
+		try {
+			while (true) {
+				int type = connection.in.readInt();
+				if (type == IslandProtocol.DONE) {
+					connection.readDone();
+					return;
+				}
+				if (type != IslandProtocol.MIGRANTS) {
+					throw new IOException("Unexpected message " + type);
+				}
+				int iterations = connection.in.readInt();
+				long evaluations = connection.in.readLong();
+				migrants.clear();
+				IslandProtocol.readMigrants(connection.in, migrants);
+				this.update(connection, iterations, evaluations, migrants);
+				this.forward(connection, migrants);
+			}
+		} catch (IOException e) {
+			connection.fail(e);
+		}
+	}
+
+	// records a worker's progress and checks the stopping criterion on
+	// the progress of all of them
+	private synchronized void update(Connection connection, int iterations, long evaluations, List<Migrant> migrants) {
+		connection.iterations = iterations;
+		connection.evaluations = evaluations;
+		if (!migrants.isEmpty() && migrants.get(0).getValue() < connection.bestValue) {
+			connection.bestValue = migrants.get(0).getValue();
+		}
+		int maxIterations = 0;
+		long totalEvaluations = 0;
+		for (Connection other : this.connections) {
+			maxIterations = Math.max(maxIterations, other.iterations);
+			totalEvaluations += other.evaluations;
+		}
+		if (connection.bestValue < this.globalBestValue) {
+			this.globalBestValue = connection.bestValue;
+			this.globalBestIteration = maxIterations;
+		}
+
+		StoppingCriterion stoppingCriterion = this.model.getStoppingCriterion();
+		if (stoppingCriterion != null && this.stopReason.get() == null) {
+			this.progress.update(maxIterations, this.globalBestValue, this.globalBestIteration,
+					totalEvaluations, System.nanoTime() - this.startTime);
+			String reason = stoppingCriterion.check(this.progress);
+			if (reason != null && this.stopReason.compareAndSet(null, reason)) {
+				for (Connection other : this.connections) {
+					other.sendStop(reason);
+				}
+			}
+		}
+	}
+
+	// sends the migrants of a worker on to its neighbours among the
+	// workers still running: the next one on a ring, or all of them
+	private void forward(Connection from, List<Migrant> migrants) {
+		int numConnections = this.connections.size();
+		int index = this.connections.indexOf(from);
+		for (int j = 1; j < numConnections; j++) {
+			Connection to = this.connections.get((index + j) % numConnections);
+			if (to.isRunning()) {
+				to.sendMigrants(migrants, this.model.getDim());
+				if (!this.model.getMigrationTopology().equals(IslandModel.FULL)) {
+					return;
+				}
+			}
+		}
+	}
+
+	// the connection to one worker. writes to it are synchronized on
+	// the connection, since any reader thread can forward migrants to it
+	//
+	// only the reader of a connection closes it: when the worker's DONE
+	// has been read, or when the reader fails, which is what counts the
+	// worker as failed. a failed write only stops further writes, so a
+	// worker that finished and closed its end while migrants were on the
+	// way still has its DONE read
+	private class Connection {
+		private int id;
+		private Socket socket;
+		private DataInputStream in;
+		private DataOutputStream out;
+
+		// the last progress reported, guarded by the coordinator
+		private double bestValue = Double.MAX_VALUE;
+		private int iterations;
+		private long evaluations;
+
+		private volatile boolean done;
+		private volatile boolean failed;
+		// set after a write failed, guarded by the connection
+		private boolean writeFailed;
+		private int globalBestIteration;
+		private double[] trace;
+
+		public Connection(int id, Socket socket) throws IOException {
+			this.id = id;
+			this.socket = socket;
+			socket.setTcpNoDelay(true);
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		public boolean isRunning() {
+			return !this.done && !this.failed;
+		}
+
+		public void readDone() throws IOException {
+			double value = this.in.readDouble();
+			this.globalBestIteration = this.in.readInt();
+			int iterations = this.in.readInt();
+			long evaluations = this.in.readLong();
+			double[] trace = new double[this.in.readInt()];
+			for (int t = 0; t < trace.length; t++) {
+				trace[t] = this.in.readDouble();
+			}
+			synchronized (IslandCoordinator.this) {
+				this.bestValue = Math.min(this.bestValue, value);
+				this.iterations = iterations;
+				this.evaluations = evaluations;
+				this.trace = trace;
+				this.done = true;
+			}
+			// nothing is sent to the worker after its DONE, and closing
+			// is what ends its wait for the coordinator
+			synchronized (this) {
+				this.close();
+			}
+		}
+
+		public synchronized void sendMigrants(List<Migrant> migrants, int dim) {
+			if (!this.isRunning() || this.writeFailed) {
+				return;
+			}
+			try {
+				IslandProtocol.writeMigrants(this.out, 0, 0, migrants, dim);
+			} catch (IOException e) {
+				this.writeFailed = true;
+			}
+		}
+
+		public synchronized void sendStop(String reason) {
+			if (!this.isRunning() || this.writeFailed) {
+				return;
+			}
+			try {
+				IslandProtocol.writeStop(this.out, reason);
+			} catch (IOException e) {
+				this.writeFailed = true;
+			}
+		}
+
+		// drops the worker, which ended without its DONE. only called by
+		// the reader of the connection
+		public void fail(IOException e) {
+			if (this.done || this.failed) {
+				return;
+			}
+			this.failed = true;
+			System.err.println("Worker " + this.id + " failed: " + e);
+			synchronized (this) {
+				this.close();
+			}
+		}
+
+		private void close() {
+			try {
+				this.socket.close();
+			} catch (IOException e) {
+				// already closed
+			}
+		}
+	}
+
+	// Getters & Setters
+
+	// the port the workers connect to
+	public int getPort() {
+		return this.server.getLocalPort();
+	}
+
+	public int getAcceptTimeoutMillis() {
+		return acceptTimeoutMillis;
+	}
+
+	public void setAcceptTimeoutMillis(int acceptTimeoutMillis) {
+		this.acceptTimeoutMillis = acceptTimeoutMillis;
+	}
+
+	// number of workers that failed or disconnected during the last trial
+	public int getNumFailedWorkers() {
+		int failed = 0;
+		for (Connection connection : this.connections) {
+			if (connection.failed) {
+				failed++;
+			}
+		}
+		return failed;
+	}
+}
@@ -0,0 +1,271 @@
+/*
+ * This file implements the island model: one optimization problem
+ * solved by several independent islands, each a swarm and a GA on a
+ * thread of its own, possibly with different topologies. Every
+ * migrationInterval iterations each island sends its numMigrants
+ * best particles to its neighbours, which are the next island on a
+ * "ring" or every other island when "full"
+ * 
+ * Migrants travel through the bounded lock-free Mailbox of each
+ * island, so the islands never wait on each other or on a lock. As a
+ * consequence migrations are asynchronous and a run is not
+ * reproducible from its seed the way a single trial is
+ * 
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class IslandModel {
+
+	public static final String RING = "ring";
+	public static final String FULL = "full";
+
+	private double cutRatio;
+	private double mutProb;
+	private double crossProb;
+	private int numParticles; // per island
+	private int dim;
+	private int maxIterations;
+	private String[] nbhdTypes; // one per island
+	private String crossMethod;
+	private String sel;
+
+	private String migrationTopology = RING;
+	private int migrationInterval = 50;
+	private int numMigrants = 2;
+	private int mailboxCapacity = 16;
+	private StoppingCriterion stoppingCriterion;
+	// seed of every trial if set, otherwise each trial draws its own
+	// from seeds
+	private long seed;
+	private boolean seedSet;
+	private final Rng seeds = new Rng();
+
+	// one island per entry of nbhdTypes, each with numParticles particles
+	public IslandModel(double cutRatio, double mutProb, double crossProb,
+			int numParticles, int dim, int maxIterations,
+			String[] nbhdTypes, String crossMethod, String sel) {
+		this.cutRatio = cutRatio;
+		this.mutProb = mutProb;
+		this.crossProb = crossProb;
+		this.numParticles = numParticles;
+		this.dim = dim;
+		this.maxIterations = maxIterations;
+		this.nbhdTypes = nbhdTypes.clone();
+		this.crossMethod = crossMethod;
+		this.sel = sel;
+	}
+
+	// runs every island on function functionNum (see Hybrid.trial) until
+	// maxIterations or until the islands together meet the stopping
+	// criterion.
+	// the result is that of the island with the best global best, with
+	// the evaluations of all the islands and the best of their traces
+	public TrialResult runTrial(int functionNum) {
+		final long startTime = System.nanoTime();
+		int numIslands = this.nbhdTypes.length;
+		AtomicReference<String> stopReason = new AtomicReference<String>();
+		IslandProgress progress = new IslandProgress(numIslands, this.stoppingCriterion, stopReason, startTime);
+		long seed = this.nextSeed();
+
+		// creates the islands, each with its own function so their
+		// evaluation counters do not contend
+		Island[] islands = new Island[numIslands];
+		for (int k = 0; k < numIslands; k++) {
+			islands[k] = this.createIsland(k, functionNum, this.islandSeed(seed, k), stopReason);
+			islands[k].setProgress(progress);
+		}
+		this.connect(islands);
+
+		ExecutorService executor = Executors.newFixedThreadPool(numIslands);
+		try {
+			List<Island> tasks = new ArrayList<Island>();
+			for (Island island : islands) {
+				tasks.add(island);
+			}
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Island model interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Island failed", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		final double runTime = (System.nanoTime() - startTime) / 1000000000.0;
+
+		Island best = islands[0];
+		long evaluations = 0;
+		int iterations = 0;
+		double[] trace = islands[0].getTrace().clone();
+		for (Island island : islands) {
+			if (island.getSwarm().getGlobalBestValue() < best.getSwarm().getGlobalBestValue()) {
+				best = island;
+			}
+			evaluations += island.getFunction().getEvaluations();
+			iterations = Math.max(iterations, island.getIterations());
+			for (int t = 0; t < trace.length; t++) {
+				trace[t] = Math.min(trace[t], island.getTrace()[t]);
+			}
+		}
+		String reason = stopReason.get() != null ? stopReason.get() : StoppingCriteria.MAX_ITERATIONS;
+		return new TrialResult(functionNum, this.cutRatio, seed, best.getSwarm().getGlobalBestValue(),
+				best.getGlobalBestIteration(), runTime, evaluations, trace, iterations, reason);
+	}
+
+	// creates island k, whose random numbers are derived from seed
+	public Island createIsland(int k, int functionNum, long seed, AtomicReference<String> stopReason) {
+		Rng seeds = new Rng(seed);
+		Function function = Hybrid.createFunction(functionNum, this.dim);
+		Swarm swarm = new Swarm(this.numParticles, function, seeds.nextLong());
+		swarm.createNbhds(this.nbhdTypes[k]);
+		GA ga = new GA(swarm, this.cutRatio, this.maxIterations, seeds.split());
+		return new Island(k, function, swarm, ga, this, stopReason);
+	}
+
+	// the seed of the next trial: the one set, or a fresh one so that
+	// repeated trials are independent runs
+	public long nextSeed() {
+		if (this.seedSet) {
+			return this.seed;
+		}
+		synchronized (this.seeds) {
+			return this.seeds.nextLong();
+		}
+	}
+
+	// seed of island k of the trial with the given seed
+	public long islandSeed(long seed, int k) {
+		Rng seeds = new Rng(seed);
+		for (int i = 0; i < k; i++) {
+			seeds.nextLong();
+		}
+		return seeds.nextLong();
+	}
+
+	// points every island at the mailboxes of its neighbours
+	private void connect(Island[] islands) {
+		int numIslands = islands.length;
+		for (int k = 0; k < numIslands; k++) {
+			Mailbox[] neighbours;
+			if (numIslands == 1) {
+				neighbours = new Mailbox[0];
+			} else if (this.migrationTopology.equals(FULL)) {
+				neighbours = new Mailbox[numIslands - 1];
+				for (int j = 1; j < numIslands; j++) {
+					neighbours[j - 1] = islands[(k + j) % numIslands].getInbox();
+				}
+			} else {
+				neighbours = new Mailbox[] { islands[(k + 1) % numIslands].getInbox() };
+			}
+			islands[k].setNeighbours(neighbours);
+		}
+	}
+
+	// Getters & Setters
+
+	public double getCutRatio() {
+		return cutRatio;
+	}
+
+	public int getNumParticles() {
+		return numParticles;
+	}
+
+	public int getDim() {
+		return dim;
+	}
+
+	public String[] getNbhdTypes() {
+		return nbhdTypes.clone();
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public double getMutProb() {
+		return mutProb;
+	}
+
+	public double getCrossProb() {
+		return crossProb;
+	}
+
+	public String getCrossMethod() {
+		return crossMethod;
+	}
+
+	public String getSel() {
+		return sel;
+	}
+
+	public String getMigrationTopology() {
+		return migrationTopology;
+	}
+
+	// RING or FULL
+	public void setMigrationTopology(String migrationTopology) {
+		if (!migrationTopology.equals(RING) && !migrationTopology.equals(FULL)) {
+			throw new IllegalArgumentException("Unknown migration topology: " + migrationTopology);
+		}
+		this.migrationTopology = migrationTopology;
+	}
+
+	public int getMigrationInterval() {
+		return migrationInterval;
+	}
+
+	public void setMigrationInterval(int migrationInterval) {
+		this.migrationInterval = migrationInterval;
+	}
+
+	public int getNumMigrants() {
+		return numMigrants;
+	}
+
+	public void setNumMigrants(int numMigrants) {
+		this.numMigrants = numMigrants;
+	}
+
+	public int getMailboxCapacity() {
+		return mailboxCapacity;
+	}
+
+	public void setMailboxCapacity(int mailboxCapacity) {
+		this.mailboxCapacity = mailboxCapacity;
+	}
+
+	public StoppingCriterion getStoppingCriterion() {
+		return stoppingCriterion;
+	}
+
+	// checked on the progress of all the islands together: the most
+	// iterations of any island, the best value of any island and the sum
+	// of their evaluations, see IslandProgress. meeting it stops them all
+	public void setStoppingCriterion(StoppingCriterion stoppingCriterion) {
+		this.stoppingCriterion = stoppingCriterion;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public boolean isSeedSet() {
+		return seedSet;
+	}
+
+	// runs every trial from seed, see nextSeed
+	public void setSeed(long seed) {
+		this.seed = seed;
+		this.seedSet = true;
+	}
+}
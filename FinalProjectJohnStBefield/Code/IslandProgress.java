@@ -0,0 +1,62 @@
+/*
+ * This file aggregates the progress of the islands of an IslandModel
+ * that run on threads, so the stopping criterion is checked on the run
+ * as a whole: the iterations of the island furthest along, the best
+ * value of any island and the iteration it was found at, and the
+ * evaluations of all the islands. IslandCoordinator checks the same
+ * aggregate over its workers, so a criterion means the same in both
+ * modes
+ * 
+ */
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class IslandProgress {
+
+	private StoppingCriterion stoppingCriterion;
+	// set once the criterion is met, which stops every island
+	private AtomicReference<String> stopReason;
+	private long startTime;
+
+	// the last progress each island reported
+	private int[] iterations;
+	private long[] evaluations;
+	private double globalBestValue = Double.MAX_VALUE;
+	private int globalBestIteration;
+	private TrialProgress progress = new TrialProgress();
+
+	public IslandProgress(int numIslands, StoppingCriterion stoppingCriterion, AtomicReference<String> stopReason,
+			long startTime) {
+		this.stoppingCriterion = stoppingCriterion;
+		this.stopReason = stopReason;
+		this.startTime = startTime;
+		this.iterations = new int[numIslands];
+		this.evaluations = new long[numIslands];
+	}
+
+	// records the progress of island after an iteration and checks the
+	// stopping criterion on the progress of all of them
+	public synchronized void update(int island, int iterations, long evaluations, double bestValue) {
+		this.iterations[island] = iterations;
+		this.evaluations[island] = evaluations;
+		int maxIterations = 0;
+		long totalEvaluations = 0;
+		for (int k = 0; k < this.iterations.length; k++) {
+			maxIterations = Math.max(maxIterations, this.iterations[k]);
+			totalEvaluations += this.evaluations[k];
+		}
+		if (bestValue < this.globalBestValue) {
+			this.globalBestValue = bestValue;
+			this.globalBestIteration = maxIterations;
+		}
+
+		if (this.stoppingCriterion != null && this.stopReason.get() == null) {
+			this.progress.update(maxIterations, this.globalBestValue, this.globalBestIteration,
+					totalEvaluations, System.nanoTime() - this.startTime);
+			String reason = this.stoppingCriterion.check(this.progress);
+			if (reason != null) {
+				this.stopReason.compareAndSet(null, reason);
+			}
+		}
+	}
+}
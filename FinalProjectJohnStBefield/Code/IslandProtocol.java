@@ -0,0 +1,132 @@
+/*
+ * This file defines the binary protocol between an IslandCoordinator
+ * and its IslandWorkers. Every message is its type followed by its
+ * body, written with DataOutputStream:
+ *
+ *   CONFIG   (coordinator to worker) island id, functionNum, cutRatio,
+ *            mutProb, crossProb, numParticles, dim, maxIterations,
+ *            nbhdType, crossMethod, sel, seed, migrationInterval,
+ *            numMigrants, mailboxCapacity
+ *   MIGRANTS (both ways) iterations, evaluations, count, dim, then
+ *            count times the value and the position of a migrant.
+ *            from a worker the migrants are its best particles, best
+ *            first, and iterations/evaluations are its progress. from
+ *            the coordinator both are 0
+ *   STOP     (coordinator to worker) the reason to stop
+ *   DONE     (worker to coordinator) global best value, global best
+ *            iteration, iterations, evaluations, the trace length and
+ *            the trace
+ *
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+public class IslandProtocol {
+
+	public static final int CONFIG = 1;
+	public static final int MIGRANTS = 2;
+	public static final int STOP = 3;
+	public static final int DONE = 4;
+
+	private IslandProtocol() {
+	}
+
+	public static void writeConfig(DataOutputStream out, int islandId, int functionNum, long seed,
+			IslandModel model, String nbhdType) throws IOException {
+		out.writeInt(CONFIG);
+		out.writeInt(islandId);
+		out.writeInt(functionNum);
+		out.writeDouble(model.getCutRatio());
+		out.writeDouble(model.getMutProb());
+		out.writeDouble(model.getCrossProb());
+		out.writeInt(model.getNumParticles());
+		out.writeInt(model.getDim());
+		out.writeInt(model.getMaxIterations());
+		out.writeUTF(nbhdType);
+		out.writeUTF(model.getCrossMethod());
+		out.writeUTF(model.getSel());
+		out.writeLong(seed);
+		out.writeInt(model.getMigrationInterval());
+		out.writeInt(model.getNumMigrants());
+		out.writeInt(model.getMailboxCapacity());
+		out.flush();
+	}
+
+	// reads the body of a CONFIG message into a model of one island,
+	// whose seed is the island's seed. ids gets the island id and
+	// functionNum
+	public static IslandModel readConfig(DataInputStream in, int[] ids) throws IOException {
+		ids[0] = in.readInt();
+		ids[1] = in.readInt();
+		double cutRatio = in.readDouble();
+		double mutProb = in.readDouble();
+		double crossProb = in.readDouble();
+		int numParticles = in.readInt();
+		int dim = in.readInt();
+		int maxIterations = in.readInt();
+		String nbhdType = in.readUTF();
+		String crossMethod = in.readUTF();
+		String sel = in.readUTF();
+		IslandModel model = new IslandModel(cutRatio, mutProb, crossProb, numParticles, dim,
+				maxIterations, new String[] { nbhdType }, crossMethod, sel);
+		model.setSeed(in.readLong());
+		model.setMigrationInterval(in.readInt());
+		model.setNumMigrants(in.readInt());
+		model.setMailboxCapacity(in.readInt());
+		return model;
+	}
+
+	public static void writeMigrants(DataOutputStream out, int iterations, long evaluations,
+			List<Migrant> migrants, int dim) throws IOException {
+		out.writeInt(MIGRANTS);
+		out.writeInt(iterations);
+		out.writeLong(evaluations);
+		out.writeInt(migrants.size());
+		out.writeInt(dim);
+		for (Migrant migrant : migrants) {
+			out.writeDouble(migrant.getValue());
+			for (int i = 0; i < dim; i++) {
+				out.writeDouble(migrant.getPosition()[i]);
+			}
+		}
+		out.flush();
+	}
+
+	// reads the migrants of a MIGRANTS message into migrants, once the
+	// caller has read iterations and evaluations
+	public static void readMigrants(DataInputStream in, List<Migrant> migrants) throws IOException {
+		int count = in.readInt();
+		int dim = in.readInt();
+		for (int k = 0; k < count; k++) {
+			double value = in.readDouble();
+			double[] position = new double[dim];
+			for (int i = 0; i < dim; i++) {
+				position[i] = in.readDouble();
+			}
+			migrants.add(new Migrant(position, value));
+		}
+	}
+
+	public static void writeStop(DataOutputStream out, String reason) throws IOException {
+		out.writeInt(STOP);
+		out.writeUTF(reason);
+		out.flush();
+	}
+
+	public static void writeDone(DataOutputStream out, double globalBestValue, int globalBestIteration,
+			int iterations, long evaluations, double[] trace) throws IOException {
+		out.writeInt(DONE);
+		out.writeDouble(globalBestValue);
+		out.writeInt(globalBestIteration);
+		out.writeInt(iterations);
+		out.writeLong(evaluations);
+		out.writeInt(trace.length);
+		for (double value : trace) {
+			out.writeDouble(value);
+		}
+		out.flush();
+	}
+}
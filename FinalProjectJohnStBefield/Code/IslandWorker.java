@@ -0,0 +1,154 @@
+/*
+ * This file implements a worker process of the multi-process island
+ * model. It connects to an IslandCoordinator, receives the config of
+ * its island and runs it, while a reader thread puts the migrants
+ * the coordinator forwards into the island's mailbox and a sender
+ * thread sends the island's emigrants to the coordinator
+ * 
+ * Run with "java IslandWorker <host> <port>"
+ * 
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+public class IslandWorker {
+
+	// how long the sender sleeps when there is nothing to send
+	private static final long SEND_PAUSE_NANOS = 1000000L;
+	// how long a finished worker waits for the coordinator to close
+	private static final long DRAIN_TIMEOUT_MILLIS = 30000L;
+
+	private String host;
+	private int port;
+
+	public IslandWorker(String host, int port) {
+		this.host = host;
+		this.port = port;
+	}
+
+	public static void main(String[] args) throws IOException {
+		new IslandWorker(args[0], Integer.parseInt(args[1])).run();
+	}
+
+	// runs the island the coordinator sends, until it finishes or the
+	// coordinator stops it
+	public void run() throws IOException {
+		Socket socket = new Socket(this.host, this.port);
+		socket.setTcpNoDelay(true);
+		try {
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			if (in.readInt() != IslandProtocol.CONFIG) {
+				throw new IOException("Expected the island config");
+			}
+			int[] ids = new int[2];
+			IslandModel model = IslandProtocol.readConfig(in, ids);
+			final AtomicReference<String> stopReason = new AtomicReference<String>();
+			final Island island = model.createIsland(0, ids[1], model.getSeed(), stopReason);
+			final Mailbox outbox = new Mailbox(model.getMailboxCapacity());
+			island.setNeighbours(new Mailbox[] { outbox });
+			final int dim = model.getDim();
+
+			final Thread reader = new Thread(() -> receive(in, island, stopReason), "island-reader");
+			reader.setDaemon(true);
+			reader.start();
+
+			// once the island is finished the sender drains the outbox and ends
+			final AtomicBoolean finished = new AtomicBoolean();
+			Thread sender = new Thread(() -> {
+				try {
+					while (true) {
+						boolean last = finished.get();
+						if (!send(out, island, outbox, dim)) {
+							if (last) {
+								return;
+							}
+							LockSupport.parkNanos(SEND_PAUSE_NANOS);
+						}
+					}
+				} catch (IOException e) {
+					stopReason.compareAndSet(null, "coordinator lost");
+				}
+			}, "island-sender");
+			sender.start();
+
+			island.call();
+
+			finished.set(true);
+			try {
+				sender.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			IslandProtocol.writeDone(out, island.getSwarm().getGlobalBestValue(), island.getGlobalBestIteration(),
+					island.getIterations(), island.getFunction().getEvaluations(), island.getTrace());
+
+			// the coordinator may still be forwarding migrants. closing
+			// with those unread would reset the connection, and the
+			// coordinator could lose the DONE, so they are drained until
+			// the coordinator has read it and closes its end
+			socket.shutdownOutput();
+			try {
+				reader.join(DRAIN_TIMEOUT_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		} finally {
+			socket.close();
+		}
+	}
+
+	// sends everything in outbox as one message, returns false if there
+	// was nothing to send
+	private static boolean send(DataOutputStream out, Island island, Mailbox outbox, int dim) throws IOException {
+		List<Migrant> migrants = new ArrayList<Migrant>();
+		for (Migrant migrant = outbox.poll(); migrant != null; migrant = outbox.poll()) {
+			migrants.add(migrant);
+		}
+		if (migrants.isEmpty()) {
+			return false;
+		}
+		IslandProtocol.writeMigrants(out, island.getIterations(), island.getFunction().getEvaluations(),
+				migrants, dim);
+		return true;
+	}
+
+	// puts the migrants from the coordinator into the island's mailbox
+	// until the coordinator closes the connection or it is lost. a STOP
+	// stops the island, but the migrants sent after it are still read
+	private static void receive(DataInputStream in, Island island, AtomicReference<String> stopReason) {
+		List<Migrant> migrants = new ArrayList<Migrant>();
+		try {
+			while (true) {
+				int type = in.readInt();
+				if (type == IslandProtocol.STOP) {
+					stopReason.compareAndSet(null, in.readUTF());
+					continue;
+				}
+				if (type != IslandProtocol.MIGRANTS) {
+					throw new IOException("Unexpected message " + type);
+				}
+				in.readInt();
+				in.readLong();
+				migrants.clear();
+				IslandProtocol.readMigrants(in, migrants);
+				for (Migrant migrant : migrants) {
+					island.getInbox().offer(migrant);
+				}
+			}
+		} catch (IOException e) {
+			stopReason.compareAndSet(null, "coordinator lost");
+		}
+	}
+}
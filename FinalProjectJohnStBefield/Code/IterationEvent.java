@@ -0,0 +1,28 @@
+/*
+ * This file defines the JDK Flight Recorder event of one iteration of
+ * a trial with metrics enabled. JFR times the event itself, and the
+ * event costs next to nothing while no recording is running
+ * 
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("hybrid.Iteration")
+@Label("Hybrid Iteration")
+@Category("Hybrid")
+@Description("One PSO iteration and GA generation of a trial")
+public class IterationEvent extends Event {
+
+	@Label("Iteration")
+	public int iteration;
+
+	@Label("Global Best")
+	public double globalBestValue;
+
+	@Label("New Global Best")
+	public boolean newGlobalBest;
+}
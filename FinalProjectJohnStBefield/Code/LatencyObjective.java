@@ -0,0 +1,74 @@
+/*
+ * This file wraps an objective so that every evaluation takes a while,
+ * as a local stand-in for a slow, externally computed objective such
+ * as a simulation. The value is the wrapped objective's; each call
+ * first waits latency plus or minus up to jitter milliseconds, drawn
+ * uniformly, so evaluations also finish out of order
+ *
+ * A blocking objective sleeps through the wait, like a call to another
+ * process or machine. One that is not spins, like a CPU-bound
+ * computation, and keeps its thread busy
+ *
+ * See AsyncPso, which is the mode meant for such objectives
+ *
+ */
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+public class LatencyObjective implements ObjectiveFunction {
+
+	private ObjectiveFunction objective;
+	private long latencyNanos;
+	private long jitterNanos;
+	private boolean blocking;
+
+	public LatencyObjective(ObjectiveFunction objective, double latencyMillis, double jitterMillis, boolean blocking) {
+		this.objective = objective;
+		this.latencyNanos = (long) (latencyMillis * 1000000.0);
+		this.jitterNanos = (long) (jitterMillis * 1000000.0);
+		this.blocking = blocking;
+	}
+
+	public double eval(double[] values, int offset, int dim) {
+		long wait = this.latencyNanos;
+		if (this.jitterNanos > 0) {
+			wait += ThreadLocalRandom.current().nextLong(-this.jitterNanos, this.jitterNanos + 1);
+		}
+		this.await(Math.max(0, wait));
+		return this.objective.eval(values, offset, dim);
+	}
+
+	// waits nanos, or returns early if the thread is interrupted and
+	// leaves its interrupt flag set
+	private void await(long nanos) {
+		long deadline = System.nanoTime() + nanos;
+		long left = nanos;
+		while (left > 0 && !Thread.currentThread().isInterrupted()) {
+			if (this.blocking) {
+				LockSupport.parkNanos(left);
+			} else {
+				Thread.onSpinWait();
+			}
+			left = deadline - System.nanoTime();
+		}
+	}
+
+	// Getters
+
+	public ObjectiveFunction getObjective() {
+		return objective;
+	}
+
+	public double getLatencyMillis() {
+		return latencyNanos / 1000000.0;
+	}
+
+	public double getJitterMillis() {
+		return jitterNanos / 1000000.0;
+	}
+
+	public boolean isBlocking() {
+		return blocking;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * This file implements the inbox of an island: a bounded, lock-free
+ * queue of migrants that any number of islands can send to while the
+ * owner takes them out
+ * 
+ * It is an array based ring where every slot carries a sequence
+ * number telling senders and the receiver whose turn it is, so
+ * sending and receiving are a compare-and-set each and never block.
+ * When the mailbox is full a new migrant is dropped, an island that
+ * falls behind only misses some of the migrants sent to it
+ * 
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class Mailbox {
+
+	private int mask;
+	private AtomicReferenceArray<Migrant> slots;
+	// sequences[i] == position: slot i is free for the sender at position
+	// sequences[i] == position + 1: slot i holds the migrant at position
+	private AtomicLongArray sequences;
+	private AtomicLong sendPosition = new AtomicLong();
+	private AtomicLong receivePosition = new AtomicLong();
+
+	// a mailbox holding at least capacity migrants
+	public Mailbox(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.mask = size - 1;
+		this.slots = new AtomicReferenceArray<Migrant>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+	}
+
+	// adds migrant, returns false if the mailbox is full
+	public boolean offer(Migrant migrant) {
+		while (true) {
+			long position = this.sendPosition.get();
+			int slot = (int) position & this.mask;
+			long diff = this.sequences.get(slot) - position;
+			if (diff == 0) {
+				if (this.sendPosition.compareAndSet(position, position + 1)) {
+					this.slots.set(slot, migrant);
+					this.sequences.set(slot, position + 1);
+					return true;
+				}
+			} else if (diff < 0) {
+				return false;
+			}
+		}
+	}
+
+	// takes out the oldest migrant, or returns null if there is none
+	public Migrant poll() {
+		while (true) {
+			long position = this.receivePosition.get();
+			int slot = (int) position & this.mask;
+			long diff = this.sequences.get(slot) - (position + 1);
+			if (diff == 0) {
+				if (this.receivePosition.compareAndSet(position, position + 1)) {
+					Migrant migrant = this.slots.get(slot);
+					this.slots.set(slot, null);
+					this.sequences.set(slot, position + this.mask + 1);
+					return migrant;
+				}
+			} else if (diff < 0) {
+				return null;
+			}
+		}
+	}
+
+	public int getCapacity() {
+		return this.mask + 1;
+	}
+}
@@ -0,0 +1,26 @@
+/*
+ * This file holds a particle sent from one island to another: its
+ * individual best position and the value of it
+ * 
+ */
+
+public class Migrant {
+
+	private double[] position;
+	private double value;
+
+	public Migrant(double[] position, double value) {
+		this.position = position;
+		this.value = value;
+	}
+
+	// Getters
+
+	public double[] getPosition() {
+		return position;
+	}
+
+	public double getValue() {
+		return value;
+	}
+}
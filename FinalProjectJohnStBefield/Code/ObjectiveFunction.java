@@ -0,0 +1,34 @@
+/*
+ * This file defines the functions the hybrid minimizes. Function
+ * resolves its objective once when it is created, so evaluating a
+ * particle is a single interface call instead of comparing names.
+ * Implementations are registered in Objectives under a short name
+ * 
+ * The batch methods evaluate many points of a flat array, such as the
+ * positions of a SwarmState, in one call. By default they call eval
+ * per point; an objective overrides them to evaluate the points in a
+ * tighter loop, or to parallelise or batch an expensive evaluation
+ * internally. An override must give the same values as eval
+ * 
+ */
+
+public interface ObjectiveFunction {
+
+	// returns the value of the point with dim coordinates that
+	// starts at offset in values
+	double eval(double[] values, int offset, int dim);
+
+	// writes the values of the count points stored one after another
+	// from offset in values to out, starting at outOffset
+	default void evalBatch(double[] values, int offset, int count, int dim, double[] out, int outOffset) {
+		for (int k = 0; k < count; k++) {
+			out[outOffset + k] = this.eval(values, offset + k * dim, dim);
+		}
+	}
+
+	// same as above for the first count points of values
+	default void evalBatch(double[] values, int count, int dim, double[] out) {
+		this.evalBatch(values, 0, count, dim, out, 0);
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is the registry of objective functions, keyed by the
+ * short names used throughout the hybrid ("rok", "ack", "ras",
+ * "grk", "zak"). Other objectives can be registered under their own
+ * names and are then usable anywhere a function name is given
+ * 
+ */
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Objectives {
+
+	public static final ObjectiveFunction ROSENBROCK = new Rosenbrock();
+	public static final ObjectiveFunction ACKLEY = new Ackley();
+	public static final ObjectiveFunction RASTRIGIN = new Rastrigin();
+	public static final ObjectiveFunction GRIEWANK = new Griewank();
+	public static final ObjectiveFunction ZAKHAROV = new Zakharov();
+
+	// the same objectives in fast-math mode, see FastMath
+	public static final ObjectiveFunction FAST_ACKLEY = new Ackley(true);
+	public static final ObjectiveFunction FAST_RASTRIGIN = new Rastrigin(true);
+	public static final ObjectiveFunction FAST_GRIEWANK = new Griewank(true);
+
+	private static Map<String, ObjectiveFunction> registry = 
+			new ConcurrentHashMap<String, ObjectiveFunction>();
+
+	static {
+		register("rok", ROSENBROCK);
+		register("ack", ACKLEY);
+		register("ras", RASTRIGIN);
+		register("grk", GRIEWANK);
+		register("zak", ZAKHAROV);
+	}
+
+	private Objectives() {
+	}
+
+	// adds an objective under the given name, replacing any objective
+	// that was registered under it before
+	public static void register(String name, ObjectiveFunction objective) {
+		registry.put(name, objective);
+	}
+
+	// returns the fast-math version of objective, or objective itself if
+	// it has none. Rosenbrock and Zakharov take no transcendental
+	// functions per coordinate and have none
+	public static ObjectiveFunction fastMath(ObjectiveFunction objective) {
+		if (objective == ACKLEY) {
+			return FAST_ACKLEY;
+		}
+		if (objective == RASTRIGIN) {
+			return FAST_RASTRIGIN;
+		}
+		if (objective == GRIEWANK) {
+			return FAST_GRIEWANK;
+		}
+		return objective;
+	}
+
+	// returns the objective registered under the name, or null if there is none
+	public static ObjectiveFunction get(String name) {
+		return registry.get(name);
+	}
+
+}
@@ -9,11 +9,13 @@
  * the individual best along with eval and
  * update functions
  * 
+ * The particle's data lives in the SwarmState it belongs to,
+ * the particle itself is only a view onto its index in that state
  * 
  */
 
 
-import java.util.Random;
+import java.util.Arrays;
 
 //implements a particle including the function, its position and velocity in 
 //the PSO and to be used in the modified GA
@@ -21,87 +23,160 @@ public class Particle {
 
 	private Function function;
 	private int dim;
-	public double[] pos;
-	public double[] vel;
-	public double[] indivBestPos;
-	public double valueOfIndivBest;
+	private SwarmState state;
+	private int index;
+	private int offset;
 	
-	private Random rand = new Random();
+	private Rng rand;
+	// the two random vectors of the velocity update, 0 to phi1 in the
+	// first dim entries and 0 to phi2 in the rest. reused every update
+	private double[] coefficients;
 	
+	// a particle on its own, backed by a state of size one
 	public Particle(Function function) {
+		this(function, new SwarmState(1, function.getDimensions()), 0);
+	}
+	
+	// a particle at the given index of a swarm's state. the entries
+	// of the state at that index are randomly initialized
+	public Particle(Function function, SwarmState state, int index) {
+		this(function, state, index, true, new Rng());
+	}
+	
+	// a particle at the given index of a swarm's state. if randomInit is
+	// false the entries already in the state are kept as they are
+	public Particle(Function function, SwarmState state, int index, boolean randomInit) {
+		this(function, state, index, randomInit, new Rng());
+	}
+	
+	// same as above, drawing all of the particle's random numbers from rand
+	public Particle(Function function, SwarmState state, int index, boolean randomInit, Rng rand) {
 		
 		this.function = function;
+		this.rand = rand;
 		this.dim = function.getDimensions();
-		this.pos = this.randomValues(function.getMinInitPos(), function.getMaxInitPos());
-		this.vel = this.randomValues(function.getMinInitVel(), function.getMaxInitVel());
-		this.indivBestPos = this.pos;
-		this.valueOfIndivBest = this.eval();
+		this.coefficients = new double[2 * this.dim];
+		this.state = state;
+		this.index = index;
+		this.offset = state.offset(index);
+		if (!randomInit) {
+			return;
+		}
+		this.randomValues(state.positions, this.offset, function.getMinInitPos(), function.getMaxInitPos());
+		this.randomValues(state.velocities, this.offset, function.getMinInitVel(), function.getMaxInitVel());
+		System.arraycopy(state.positions, this.offset, state.bestPositions, this.offset, this.dim);
+		state.bestValues[index] = this.updateValue();
 	}
 	
 	
-	// used to initialize position/velocity. also used for the random vector when updating velocity
+	// used to initialize position/velocity
 	// minInit and maxInit refer to the range of values that the entries of the vector can take
 	public double[] randomValues(double minInitValue, double maxInitValue) {
 		double[] randomVals = new double[this.dim];
-		for(int i = 0; i < this.dim; i++) {
-			randomVals[i] = minInitValue + rand.nextDouble()*(maxInitValue - minInitValue);
-		}
+		this.randomValues(randomVals, 0, minInitValue, maxInitValue);
 		return randomVals;
 	}
 	
+	// fills dim entries of values starting at offset with random values
+	public void randomValues(double[] values, int offset, double minInitValue, double maxInitValue) {
+		rand.fillUniform(values, offset, this.dim, minInitValue, maxInitValue);
+	}
+	
 	// update velocity, position, and check if new individual best
-	public void singleIteration(double[] globalBest) {
-		this.updateVel(globalBest);
+	// the whole update works in place on the state and allocates nothing
+	// returns true if the individual best improved
+	public boolean singleIteration(double[] globalBest) {
+		return this.singleIteration(globalBest, 0);
+	}
+	
+	// same as above, where the global best starts at globalBestOffset
+	public boolean singleIteration(double[] globalBest, int globalBestOffset) {
+		this.updateVel(globalBest, globalBestOffset);
 		this.updatePos();
-		double valueOfCurrPos = this.eval();
-		
-		// if new value is more optimal, change the indivBests
-		if (valueOfCurrPos < this.valueOfIndivBest) {
-			this.valueOfIndivBest = valueOfCurrPos;
-			this.indivBestPos = this.pos;
+		return this.updateIndivBest(this.updateValue());
+	}
+	
+	// if value of the current position is more optimal, change the
+	// indivBests. the best is kept in its own block of the state, so it
+	// is copied, not aliased. returns true if the individual best improved
+	public boolean updateIndivBest(double valueOfCurrPos) {
+		if (valueOfCurrPos < this.state.bestValues[this.index]) {
+			this.state.bestValues[this.index] = valueOfCurrPos;
+			System.arraycopy(this.state.positions, this.offset, this.state.bestPositions, this.offset, this.dim);
+			return true;
 		}
+		return false;
 	}
 	
 	// evaluate value of current position w.r.t. the function
 	public double eval() {
-		return this.function.eval(this.pos);
+		return this.function.eval(this.state.positions, this.offset);
+	}
+	
+	// value of the current position, only evaluated if the position
+	// changed since the last evaluation
+	public double getValue() {
+		if (this.state.dirty[this.index]) {
+			return this.updateValue();
+		}
+		return this.state.values[this.index];
+	}
+	
+	// evaluates the current position and caches the value
+	public double updateValue() {
+		double value = this.eval();
+		this.state.values[this.index] = value;
+		this.state.dirty[this.index] = false;
+		return value;
 	}
 	
 	
 	// update velocity using equation given in class
-	public void updateVel(double[] globalBest) {
+	public void updateVel(double[] globalBest, int globalBestOffset) {
 		
-		// create two random vectors, values 0 to phi
-		double[] vecU1 = this.randomValues(0.0, this.function.getPhi1());
-		double[] vecU2 = this.randomValues(0.0, this.function.getPhi2());
+		double[] pos = this.state.positions;
+		double[] vel = this.state.velocities;
+		double[] indivBest = this.state.bestPositions;
+		double phi1 = this.function.getPhi1();
+		double phi2 = this.function.getPhi2();
+		double constrictionFactor = this.function.getConstrictionFactor();
+		
+		// the random vectors are drawn in bulk into the reused buffer
+		double[] u = this.coefficients;
+		rand.fillUniform(u, 0, this.dim, 0.0, phi1);
+		rand.fillUniform(u, this.dim, this.dim, 0.0, phi2);
 		
 		// for each entry in the velocity vector, update it
 		for(int i = 0; i < this.dim; i++) {
+			int j = this.offset + i;
+			double u1 = u[i];
+			double u2 = u[this.dim + i];
 			
 			// element-wise multiplication between random vector and (difference vector)
 			// where difference vector = gBest/iBest vector - current Position vector
-			vecU1[i] = vecU1[i] * (this.indivBestPos[i] - this.pos[i]);
-			vecU2[i] = vecU2[i] * (globalBest[i] - this.pos[i]);	
-			this.vel[i] = this.function.getConstrictionFactor() * (this.vel[i] + vecU1[i] + vecU2[i]);
+			vel[j] = constrictionFactor * (vel[j] + u1 * (indivBest[j] - pos[j])
+					+ u2 * (globalBest[globalBestOffset + i] - pos[j]));
 			
 		}
 	}
 	
-	// update position by adding the velocity vector
+	// update position in place by adding the velocity vector
 	public void updatePos() {
-		double[] newPos = new double[this.dim];
-		for(int i = 0; i < this.dim; i++) {
-			newPos[i] = this.pos[i] + this.vel[i];
+		double[] pos = this.state.positions;
+		double[] vel = this.state.velocities;
+		for(int i = this.offset; i < this.offset + this.dim; i++) {
+			pos[i] = pos[i] + vel[i];
 		}
-		this.pos = newPos;
 	}
 	
 	public String toString() {
-		String pos = "[" + Double.toString(this.pos[0]);
-		String vel = "[" + Double.toString(this.vel[0]);
+		double[] statePos = this.state.positions;
+		double[] stateVel = this.state.velocities;
+		String pos = "[" + Double.toString(statePos[this.offset]);
+		String vel = "[" + Double.toString(stateVel[this.offset]);
 		for(int i = 1; i < this.dim; i++) {
-			pos += ", " + this.pos[i];
-			vel += ", " + this.vel[i];
+			pos += ", " + statePos[this.offset + i];
+			vel += ", " + stateVel[this.offset + i];
 		}
 		pos += "]";
 		vel += "]";
@@ -111,61 +186,85 @@ public class Particle {
 	
 	
 	// Getters & Setters
+	// the array getters return copies, the state owns the data
 	
 	public double[] getPos() {
-		return pos;
+		return Arrays.copyOfRange(this.state.positions, this.offset, this.offset + this.dim);
 	}
 	
 	public double getPosValue(int index) {
-		return pos[index];
+		return this.state.positions[this.offset + index];
 	}
 	
 	public double getVelValue(int index) {
-		return vel[index];
+		return this.state.velocities[this.offset + index];
 	}
 
 
 	public void setPos(double[] position) {
-		this.pos = position;
+		System.arraycopy(position, 0, this.state.positions, this.offset, this.dim);
+		this.state.markDirty(this.index);
 	}
 	
 	public void setPos(int index, double value) {
-		this.pos[index] = value;
+		this.state.positions[this.offset + index] = value;
+		this.state.markDirty(this.index);
 	}
 
 
 	public double[] getVel() {
-		return vel;
+		return Arrays.copyOfRange(this.state.velocities, this.offset, this.offset + this.dim);
 	}
 
 
 	public void setVel(double[] velocity) {
-		this.vel = velocity;
+		System.arraycopy(velocity, 0, this.state.velocities, this.offset, this.dim);
 	}
 	
 	public void setVel(int index, double value) {
-		this.vel[index] = value;
+		this.state.velocities[this.offset + index] = value;
 	}
 
 
 	public double[] getIndivBestPos() {
-		return indivBestPos;
+		return Arrays.copyOfRange(this.state.bestPositions, this.offset, this.offset + this.dim);
+	}
+	
+	// copies the individual best into dest starting at destOffset
+	public void copyIndivBestPos(double[] dest, int destOffset) {
+		System.arraycopy(this.state.bestPositions, this.offset, dest, destOffset, this.dim);
 	}
 
 
 	public void setIndivBestPos(double[] individualBest) {
-		this.indivBestPos = individualBest;
+		System.arraycopy(individualBest, 0, this.state.bestPositions, this.offset, this.dim);
 	}
 	
 	public double getValueOfIndivBest() {
-		return valueOfIndivBest;
+		return this.state.bestValues[this.index];
 	}
 
 	public void setValueOfIndivBest(double valueOfIndivBest) {
-		this.valueOfIndivBest = valueOfIndivBest;
+		this.state.bestValues[this.index] = valueOfIndivBest;
 	}
 
 	public int getDim() {
 		return dim;
 	}
+	
+	public int getIndex() {
+		return index;
+	}
+	
+	public int getOffset() {
+		return offset;
+	}
+	
+	public SwarmState getState() {
+		return state;
+	}
+	
+	public Rng getRng() {
+		return rand;
+	}
 }
@@ -0,0 +1,94 @@
+/*
+ * This file accumulates where the time of a trial goes: the time
+ * spent in each phase of an iteration, and the evaluations,
+ * individual best improvements and bytes allocated by the trial
+ * 
+ * Metrics are only collected when Hybrid.setMetricsEnabled is on.
+ * Swarm and GA hold a null PhaseMetrics otherwise, so the disabled
+ * cost is a null check per chunk and per generation. EVALUATION only
+ * covers the evaluations of the PSO update, the ones the GA triggers
+ * are part of its phases
+ * 
+ */
+
+public class PhaseMetrics {
+
+	// PSO velocity and position update
+	public static final int PSO_UPDATE = 0;
+	// evaluating the new positions of the PSO update
+	public static final int EVALUATION = 1;
+	// updating the nbhd and global bests
+	public static final int NBHD_UPDATE = 2;
+	// ranking the swarm for the GA
+	public static final int GA_SORT = 3;
+	public static final int SELECTION = 4;
+	public static final int CROSSOVER = 5;
+	public static final int MUTATION = 6;
+
+	public static final String[] PHASE_NAMES = new String[] { "psoUpdate", "evaluation", "nbhdUpdate",
+			"gaSort", "selection", "crossover", "mutation" };
+
+	private long[] phaseNanos = new long[PHASE_NAMES.length];
+	private long iterations;
+	private long evaluations;
+	private long improvements;
+	private long allocatedBytes = -1;
+
+	// adds nanos to the time of phase
+	public void add(int phase, long nanos) {
+		this.phaseNanos[phase] += nanos;
+	}
+
+	public void addImprovements(long improvements) {
+		this.improvements += improvements;
+	}
+
+	public void addIterations(long iterations) {
+		this.iterations += iterations;
+	}
+
+	public String toString() {
+		StringBuilder string = new StringBuilder();
+		for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+			string.append(PHASE_NAMES[phase]).append(": ")
+				.append(this.phaseNanos[phase] / 1000000.0).append(" ms; ");
+		}
+		string.append("iterations: ").append(this.iterations)
+			.append("; evaluations: ").append(this.evaluations)
+			.append("; improvements: ").append(this.improvements)
+			.append("; allocated bytes: ").append(this.allocatedBytes);
+		return string.toString();
+	}
+
+	// Getters & Setters
+
+	public long getPhaseNanos(int phase) {
+		return phaseNanos[phase];
+	}
+
+	public long getIterations() {
+		return iterations;
+	}
+
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	public void setEvaluations(long evaluations) {
+		this.evaluations = evaluations;
+	}
+
+	public long getImprovements() {
+		return improvements;
+	}
+
+	// bytes allocated by the thread running the trial, -1 if the JVM
+	// cannot tell. the worker threads of a parallel swarm are not counted
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public void setAllocatedBytes(long allocatedBytes) {
+		this.allocatedBytes = allocatedBytes;
+	}
+}
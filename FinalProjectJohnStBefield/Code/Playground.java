@@ -5,18 +5,12 @@
  * This file runs the code and
  * was implemented for data collection
  * The jar file is for use in outputting
- * to the excel spreadsheet		
+ * to the excel spreadsheet, see XlsExporter		
  */
 		
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import jxl.Workbook;
 import java.io.File;
-import java.*;
 import java.io.IOException;
-import jxl.write.*;
-import jxl.write.Number;
 
 public class Playground {
 
@@ -31,7 +25,8 @@ public class Playground {
 	private static String[] crossMethods = new String[] {"1c", "uc" };
 	private static int[] functionNums = new int[] { 0, 1, 2, 3, 4 };
 	private static boolean DATA_COLLECTION = true;
-	private static int counter = 0;
+	// trials per block of the binary results file
+	private static int RESULTS_BLOCK_SIZE = 16;
 	private static double[] cutRatios = new double[] {0.0, 0.05, 0.1, 0.2, 0.5, 1.0 };
 
 	public static void main(String[] args) {
@@ -49,74 +44,37 @@ public class Playground {
 //			}
 //		}
 		
-		//extensive data collection loop for hybrids,
+		//extensive data collection for hybrids,
 		//which was modified when collecting different data types
+		//every trial is streamed to the csv and results files as it
+		//finishes, and the workbook is exported from the results file
+		//once the sweep is done
 		if(DATA_COLLECTION) {
+			Experiment experiment = new Experiment(cutRatios, mutProbs, crossProbs,
+					numParticles, nbhdTypes, crossMethods, new String[] { "none" },
+					functionNums, DIM, MAX_ITERATIONS);
+			experiment.setKeepResults(false);
+			
 			try {
-				String fileName = "Data.xls";
-				WritableWorkbook workbook = Workbook.createWorkbook(new File(fileName));
-
-
-				for (int h = 0; h < cutRatios.length; h++) {
-					WritableSheet sheet = workbook.createSheet("Sheet" + ++counter, 0);
-				for(int a = 0; a < mutProbs.length; a++) { //mutProbs loop
-					for(int b = 0; b < crossProbs.length; b++) { //crossProbs
-						for(int c = 0; c < numParticles.length; c++) { //numParticles
-							for(int d = 0; d < nbhdTypes.length; d++) { //nbhdTypes
-									for (int f = 0; f < crossMethods.length; f++) { //crossMethods
-										
-										Label label = new Label(0 + 6 * c,0, "CrossMethod: " + crossMethods[f] + 
-												". Nbhd: " + nbhdTypes[d] + ". NumParticles: " + numParticles[c] + ". Crossprob: " + crossProbs[b] + ". MutProb: " + mutProbs[a]);
-										
-										sheet.addCell(label);
-										for (int g = 0; g < functionNums.length; g++) { //functionNums
-											
-											Label function = new Label(g + 6 * f, 3, "Function: " + g);
-											sheet.addCell(function);
-											
-											//Hybrid call
-											Hybrid hybrid = new Hybrid( cutRatios[h],  mutProbs[a],  crossProbs[b],
-													 numParticles[c],  DIM,  MAX_ITERATIONS,
-													 nbhdTypes[d],  crossMethods[f],  "none");
-											
-											//running the  hybrid here
-											double[][] trialStats = hybrid.trial(g); // Doing the test
-											//Number number = new Number(1,1, trialStats[0][0]);
-											//sheet.addCell(number);
-											Label bestIter = new Label(2 + 6 * f,0, "gBest Iteration");
-											Number bestItera = new Number(2 + 6 *f,1, trialStats[0][3]);
-											sheet.addCell(bestIter);
-											sheet.addCell(bestItera);
-											Label gBest = new Label(3 + 6 * f,0, "gBest");
-											sheet.addCell(gBest);
-											Number glBest = new Number(3 + 6 * f,1, trialStats[0][0]);
-											sheet.addCell(glBest);
-											for (int z = 0; z < trialStats[1].length; z++){
-												Number curr = new Number(g + 6 * f, 4+z, trialStats[1][z]);
-												sheet.addCell(curr);
-												
-											}
-											Label runTime = new Label(g + 6  * f, 4 + trialStats[1].length, "Run Time:");
-											sheet.addCell(runTime);
-											Number run = new Number(g + 6  * f, 4 + trialStats[1].length + 1, trialStats[0][4]);
-											sheet.addCell(run);
-
-										}
-									}
-								}
-							}
-						}
-					}
+				String runName = "Data-" + System.currentTimeMillis();
+				File resultsFile = new File(runName + ".bin");
+				ResultSink csv = new CsvResultSink(new File(runName + ".csv"));
+				ResultSink columns = new ColumnarResultSink(resultsFile, RESULTS_BLOCK_SIZE);
+				experiment.addSink(csv);
+				experiment.addSink(columns);
+				try {
+					experiment.run();
+				} finally {
+					csv.close();
+					columns.close();
 				}
-		workbook.write();
-		workbook.close();
-		
-		} catch(WriteException e) {
-			System.out.println("Write Exception");
-		}
-		catch (IOException e) {
-		System.out.println("IO Exception");
+				
+				XlsExporter exporter = new XlsExporter(new File("Data.xls"));
+				ColumnarResultReader.read(resultsFile, exporter);
+				exporter.close();
+			} catch (IOException e) {
+				System.out.println("IO Exception");
+			}
 		}
 	}
 }
-}
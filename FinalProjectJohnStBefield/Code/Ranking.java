@@ -0,0 +1,213 @@
+/*
+ * This file ranks particles by fitness. Instead of sorting a
+ * double[2][n] of values and indices-stored-as-doubles, it orders an
+ * int[] of indices keyed by a double[] of fitness values
+ *
+ * argsort ranks every index. topK only ranks the k best: it
+ * partitions the indices with introselect so the k smallest come
+ * first, in O(n) expected and O(n log n) worst case time, and then
+ * sorts just those k. Both use median-of-three pivots and fall back
+ * to heapsort when the recursion gets too deep, so already sorted
+ * input (a converging swarm) is not quadratic. Equal keys are
+ * ordered by index, so the ranking does not depend on the input order
+ *
+ */
+
+public class Ranking {
+
+	// ranges this small are sorted by insertion sort
+	private static final int INSERTION_SORT_SIZE = 16;
+
+	private double[] keys;
+	private int[] indices;
+
+	// a ranking for up to capacity indices. the index buffer is reused
+	// by every call
+	public Ranking(int capacity) {
+		this.indices = new int[capacity];
+	}
+
+	// ranks all n indices by keys[index], smallest first
+	// the result is valid until the next call
+	public int[] argsort(double[] keys, int n) {
+		this.load(keys, n);
+		this.sort(0, n - 1);
+		return this.indices;
+	}
+
+	// puts the k indices with the smallest keys, in ranked order, at the
+	// front of the result. the other n - k indices follow in no order
+	// the result is valid until the next call
+	public int[] topK(double[] keys, int n, int k) {
+		this.load(keys, n);
+		k = Math.min(k, n);
+		if (k <= 0) {
+			return this.indices;
+		}
+		if (k < n) {
+			this.select(0, n - 1, k - 1);
+		}
+		this.sort(0, k - 1);
+		return this.indices;
+	}
+
+	// copies the first n ranked indices of the last call into out
+	public void copyTo(int[] out, int n) {
+		System.arraycopy(this.indices, 0, out, 0, n);
+	}
+
+	private void load(double[] keys, int n) {
+		if (this.indices.length < n) {
+			this.indices = new int[n];
+		}
+		this.keys = keys;
+		for (int i = 0; i < n; i++) {
+			this.indices[i] = i;
+		}
+	}
+
+	// rearranges [left, right] so the index of rank target is in place,
+	// with smaller ones before it and larger ones after it
+	private void select(int left, int right, int target) {
+		int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1));
+		while (right - left >= INSERTION_SORT_SIZE) {
+			if (depthLimit-- == 0) {
+				this.heapSort(left, right);
+				return;
+			}
+			int pivotIndex = this.partition(left, right);
+			if (pivotIndex == target) {
+				return;
+			}
+			if (target < pivotIndex) {
+				right = pivotIndex - 1;
+			} else {
+				left = pivotIndex + 1;
+			}
+		}
+		this.insertionSort(left, right);
+	}
+
+	// introsort of [left, right]
+	private void sort(int left, int right) {
+		this.sort(left, right, 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1)));
+	}
+
+	private void sort(int left, int right, int depthLimit) {
+		while (right - left >= INSERTION_SORT_SIZE) {
+			if (depthLimit-- == 0) {
+				this.heapSort(left, right);
+				return;
+			}
+			int pivotIndex = this.partition(left, right);
+			// recurse into the smaller side so the stack stays O(log n)
+			if (pivotIndex - left < right - pivotIndex) {
+				this.sort(left, pivotIndex - 1, depthLimit);
+				left = pivotIndex + 1;
+			} else {
+				this.sort(pivotIndex + 1, right, depthLimit);
+				right = pivotIndex - 1;
+			}
+		}
+		this.insertionSort(left, right);
+	}
+
+	// partitions [left, right] around the median of its first, middle
+	// and last entries, and returns where the pivot ends up
+	private int partition(int left, int right) {
+		int middle = (left + right) >>> 1;
+		if (this.less(this.indices[middle], this.indices[left])) {
+			this.swap(middle, left);
+		}
+		if (this.less(this.indices[right], this.indices[left])) {
+			this.swap(right, left);
+		}
+		if (this.less(this.indices[right], this.indices[middle])) {
+			this.swap(right, middle);
+		}
+		// the median goes to right - 1, left and right are already on
+		// the correct sides
+		this.swap(middle, right - 1);
+		int pivot = this.indices[right - 1];
+
+		int i = left;
+		int j = right - 1;
+		while (true) {
+			while (this.less(this.indices[++i], pivot)) {
+			}
+			while (this.less(pivot, this.indices[--j])) {
+			}
+			if (i >= j) {
+				break;
+			}
+			this.swap(i, j);
+		}
+		this.swap(i, right - 1);
+		return i;
+	}
+
+	private void insertionSort(int left, int right) {
+		for (int i = left + 1; i <= right; i++) {
+			int index = this.indices[i];
+			int j = i - 1;
+			while (j >= left && this.less(index, this.indices[j])) {
+				this.indices[j + 1] = this.indices[j];
+				j--;
+			}
+			this.indices[j + 1] = index;
+		}
+	}
+
+	private void heapSort(int left, int right) {
+		int n = right - left + 1;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			this.siftDown(left, i, n);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			this.swap(left, left + end);
+			this.siftDown(left, 0, end);
+		}
+	}
+
+	// max-heap sift down of node i in the heap of size n starting at base
+	private void siftDown(int base, int i, int n) {
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= n) {
+				return;
+			}
+			if (child + 1 < n && this.less(this.indices[base + child], this.indices[base + child + 1])) {
+				child++;
+			}
+			if (!this.less(this.indices[base + i], this.indices[base + child])) {
+				return;
+			}
+			this.swap(base + i, base + child);
+			i = child;
+		}
+	}
+
+	// whether index a ranks before index b
+	private boolean less(int a, int b) {
+		double keyA = this.keys[a];
+		double keyB = this.keys[b];
+		if (keyA < keyB) {
+			return true;
+		}
+		if (keyA > keyB) {
+			return false;
+		}
+		if (keyA == keyB) {
+			return a < b;
+		}
+		// one of them is NaN, which ranks last
+		int c = Double.compare(keyA, keyB);
+		return c < 0 || (c == 0 && a < b);
+	}
+
+	private void swap(int i, int j) {
+		int temp = this.indices[i];
+		this.indices[i] = this.indices[j];
+		this.indices[j] = temp;
+	}
+}
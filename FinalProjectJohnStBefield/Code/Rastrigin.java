@@ -0,0 +1,36 @@
+/*
+ * The Rastrigin Function. The minimum is 0.0, which occurs at (0.0,...,0.0)
+ * 
+ */
+
+public class Rastrigin implements ObjectiveFunction {
+
+	private final boolean fastMath;
+
+	public Rastrigin() {
+		this(false);
+	}
+
+	// fastMath approximates the cosines, see FastMath
+	public Rastrigin(boolean fastMath) {
+		this.fastMath = fastMath;
+	}
+
+	public double eval(double[] values, int offset, int dim) {
+		double answer = 0.0;
+		for (int i = offset; i < offset + dim; i++) {
+			double x = values[i];
+			answer += x * x - 10.0 * this.cos2Pi(x) + 10.0;
+		}
+		return answer;
+	}
+
+	// cos(2 pi x)
+	private double cos2Pi(double x) {
+		return this.fastMath ? FastMath.cosTurns(x) : Math.cos(2.0 * Math.PI * x);
+	}
+
+	public boolean isFastMath() {
+		return fastMath;
+	}
+}
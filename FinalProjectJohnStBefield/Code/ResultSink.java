@@ -0,0 +1,18 @@
+/*
+ * This file defines where finished trials go. An Experiment hands
+ * every trial to its sinks as soon as it completes, one at a time,
+ * so a sink never has to hold the whole sweep in memory
+ * 
+ */
+
+import java.io.IOException;
+
+public interface ResultSink {
+
+	// records one finished trial
+	void write(TrialJob job, TrialResult result) throws IOException;
+
+	// flushes anything still buffered and releases the sink's files
+	void close() throws IOException;
+
+}
@@ -0,0 +1,128 @@
+/*
+ * This file implements the random number generator used by the
+ * hybrid: xoshiro256** seeded through SplitMix64. It is small, fast
+ * and not synchronized, so every particle, swarm and GA owns one
+ *
+ * A trial derives all of its generators from one seed with split(),
+ * which hands out independent streams, so the trial is exactly
+ * replayable from that seed whatever the number of threads. The
+ * state can be read and restored to checkpoint a generator
+ *
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+public class Rng implements RandomGenerator {
+
+	// 2^-53, turns the top 53 bits of a long into a double in [0, 1)
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+	// seeds of the unseeded generators, so two made at once still differ
+	private static final AtomicLong SEEDS = new AtomicLong(System.nanoTime());
+
+	private long s0;
+	private long s1;
+	private long s2;
+	private long s3;
+
+	// a generator seeded from the system clock and a counter
+	public Rng() {
+		this(mix(SEEDS.addAndGet(0x9E3779B97F4A7C15L)) ^ System.nanoTime());
+	}
+
+	public Rng(long seed) {
+		this.setSeed(seed);
+	}
+
+	// expands seed into the four words of state with SplitMix64, which
+	// never produces the all-zero state
+	public void setSeed(long seed) {
+		long x = seed;
+		x += 0x9E3779B97F4A7C15L;
+		this.s0 = mix(x);
+		x += 0x9E3779B97F4A7C15L;
+		this.s1 = mix(x);
+		x += 0x9E3779B97F4A7C15L;
+		this.s2 = mix(x);
+		x += 0x9E3779B97F4A7C15L;
+		this.s3 = mix(x);
+	}
+
+	// the SplitMix64 output function
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	// a new generator whose stream is independent of this one's. this
+	// generator advances by one draw
+	public Rng split() {
+		return new Rng(this.nextLong());
+	}
+
+	public long nextLong() {
+		long result = Long.rotateLeft(this.s1 * 5, 7) * 9;
+		long t = this.s1 << 17;
+		this.s2 ^= this.s0;
+		this.s3 ^= this.s1;
+		this.s1 ^= this.s2;
+		this.s0 ^= this.s3;
+		this.s2 ^= t;
+		this.s3 = Long.rotateLeft(this.s3, 45);
+		return result;
+	}
+
+	// uniform in [0, 1)
+	public double nextDouble() {
+		return (this.nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	// uniform in [0, bound), without modulo bias (Lemire's method)
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive: " + bound);
+		}
+		long m = (this.nextLong() >>> 32) * bound;
+		long low = m & 0xFFFFFFFFL;
+		if (low < bound) {
+			long threshold = (0x100000000L - bound) % bound;
+			while (low < threshold) {
+				m = (this.nextLong() >>> 32) * bound;
+				low = m & 0xFFFFFFFFL;
+			}
+		}
+		return (int) (m >>> 32);
+	}
+
+	// fills length entries of values starting at offset with uniform
+	// values in [lo, hi)
+	public void fillUniform(double[] values, int offset, int length, double lo, double hi) {
+		double range = hi - lo;
+		for (int i = offset; i < offset + length; i++) {
+			values[i] = lo + ((this.nextLong() >>> 11) * DOUBLE_UNIT) * range;
+		}
+	}
+
+	public void fillUniform(double[] values, double lo, double hi) {
+		this.fillUniform(values, 0, values.length, lo, hi);
+	}
+
+	// Getters & Setters
+
+	// the four words of state, for checkpointing
+	public long[] getState() {
+		return new long[] { this.s0, this.s1, this.s2, this.s3 };
+	}
+
+	public void setState(long[] state) {
+		if ((state[0] | state[1] | state[2] | state[3]) == 0) {
+			throw new IllegalArgumentException("the all-zero state is not valid");
+		}
+		this.s0 = state[0];
+		this.s1 = state[1];
+		this.s2 = state[2];
+		this.s3 = state[3];
+	}
+}
@@ -0,0 +1,25 @@
+/*
+ * The Rosenbrock Function. The minimum is 0.0, which occurs at (1.0,...,1.0)
+ * 
+ */
+
+public class Rosenbrock implements ObjectiveFunction {
+
+	public double eval(double[] values, int offset, int dim) {
+		double answer = 0.0;
+		for (int i = offset; i < offset + dim - 1; i++) {
+			double y = values[i + 1];
+			double x = values[i];
+			answer += pairTerm(x, y);
+		}
+		return answer;
+	}
+
+	// squaring by multiplying gives the same value as Math.pow(a, 2.0)
+	private static double pairTerm(double x, double y) {
+		double a = y - x * x;
+		double b = x - 1.0;
+		return 100.0 * (a * a) + b * b;
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * This file provides the stopping criteria for trials: reaching a
+ * target value, stagnating, running out of time and running out of
+ * evaluations, and combining criteria with all (AND) and any (OR)
+ * 
+ * The criteria keep no state of their own, so one criterion can be
+ * shared by every trial of an experiment
+ * 
+ */
+
+public class StoppingCriteria {
+
+	// the reason of a trial that ran all of its iterations
+	public static final String MAX_ITERATIONS = "maxIterations";
+
+	public static final String TARGET = "target";
+	public static final String STAGNATION = "stagnation";
+	public static final String DEADLINE = "deadline";
+	public static final String EVALUATIONS = "evaluations";
+
+	private StoppingCriteria() {
+	}
+
+	// stops once the global best is at most target. the benchmark
+	// functions all have their minimum at 0
+	public static StoppingCriterion targetValue(final double target) {
+		return progress -> progress.getGlobalBestValue() <= target ? TARGET : null;
+	}
+
+	// stops once the global best has not improved for the given number
+	// of iterations
+	public static StoppingCriterion stagnation(final int iterations) {
+		return progress -> progress.getIterations() - 1 - progress.getGlobalBestIteration() >= iterations
+				? STAGNATION : null;
+	}
+
+	// stops once the trial has run for the given number of seconds
+	public static StoppingCriterion deadline(double seconds) {
+		final long nanos = (long) (seconds * 1000000000.0);
+		return progress -> progress.getElapsedNanos() >= nanos ? DEADLINE : null;
+	}
+
+	// stops once the function has been evaluated the given number of times
+	public static StoppingCriterion maxEvaluations(final long evaluations) {
+		return progress -> progress.getEvaluations() >= evaluations ? EVALUATIONS : null;
+	}
+
+	// stops when every one of criteria says to. the reasons are joined by '+'
+	public static StoppingCriterion all(final StoppingCriterion... criteria) {
+		return progress -> {
+			String reasons = null;
+			for (StoppingCriterion criterion : criteria) {
+				String reason = criterion.check(progress);
+				if (reason == null) {
+					return null;
+				}
+				reasons = (reasons == null) ? reason : reasons + "+" + reason;
+			}
+			return reasons;
+		};
+	}
+
+	// stops when any of criteria says to, with the reason of the first one
+	public static StoppingCriterion any(final StoppingCriterion... criteria) {
+		return progress -> {
+			for (StoppingCriterion criterion : criteria) {
+				String reason = criterion.check(progress);
+				if (reason != null) {
+					return reason;
+				}
+			}
+			return null;
+		};
+	}
+}
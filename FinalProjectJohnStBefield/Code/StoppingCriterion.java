@@ -0,0 +1,12 @@
+/*
+ * This file defines a condition for ending a trial before it has
+ * run all of its iterations. See StoppingCriteria for the built in
+ * criteria and how to combine them
+ * 
+ */
+
+public interface StoppingCriterion {
+
+	// returns why the trial should stop now, or null to keep going
+	String check(TrialProgress progress);
+}
@@ -5,56 +5,120 @@
  * through the neighborhoods and update their best
  * values global wise and on the neighborhood level
  * 
+ * the particle data itself is stored in a SwarmState, the
+ * Particle objects in swarm are views onto it
+ * 
  */
 
-import java.util.Random;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class Swarm {
 
 	private int numParticles;
+	public SwarmState state;
 	public Particle[] swarm;
 	private Function function;
 	private String nbhdType; // i.e. "gl", "ra"
 	private int numNbhds; // determined by numParticles and neighborhood type
-	public Particle[][] nbhds; // nbhds are arrays of particles
+	private Topology topology; // nbhds are index tables into swarm
 
 	// index of each array in nbhdBests corresponds to same index array in
 	// nbhds
-	public double[][] nbhdBestPositions; // each array contains the solution for that nbhd
+	public double[] nbhdBestPositions; // flat, nbhd i's solution starts at i * dim
 	public double[] nbhdBestValues; // each index is the value of the solution. indices correspond
 	
 	public double globalBestValue = 2147199999; 
 	public double[] globalBestPosition; // array of the solution
 
-	private int VN_DIST = 1; // von Neumann distance for vN neighborhoods
-	private int RING_NBHD_SZ = 3; // rings of size 3
-	private int RAND_NBHD_SZ = 5; // random nbhds of size 5
+	// nbhds whose members changed since the last iteration ("ra"). their
+	// bests are recomputed from scratch after the particle updates
+	private int[] changedNbhds;
+	private boolean[] isChangedNbhd;
+	private int numChangedNbhds;
+	// scratch list of the nbhds redrawn in an iteration ("ra")
+	private int[] redrawNbhds;
+
+	// set when the individual bests changed outside of the PSO update,
+	// i.e. by selection, so every nbhd best is recomputed from scratch
+	private boolean needsRescan;
+
+	private int VN_DIST = 1; // von Neumann distance for vN neighborhoods, see setVnDist
+	private int RING_NBHD_SZ = 3; // rings of size 3, see setRingNbhdSize
+	private int RAND_NBHD_SZ = 5; // random nbhds of size 5, see setRandNbhdSize
 	// prob that in an iteration, a particle recreates its nbhd (nbhdType =
 	// "ra")
 	private double PROB_NEW_RAND_NBHD = 0.2;
 
-	private Random rand = new Random();
+	private Rng rand;
+
+	// number of threads the particle updates are split across. with more
+	// than one thread the particles are partitioned into contiguous chunks
+	// that are updated in parallel, and the nbhd/global best updates only
+	// run once every chunk is done, so the result is the same synchronous PSO
+	private int numThreads = 1;
+	private ForkJoinPool pool;
+	private List<ParticleUpdate> updates;
+
+	// the chunks the particles are split into, one per thread. the
+	// particles of chunk c that improved their individual best are
+	// written to improvedIndices[chunkStarts[c] ...] and counted in
+	// chunkImproved[c]
+	private int[] chunkStarts;
+	private int[] chunkEnds;
+	private int[] chunkImproved;
+	// time chunk c spent on velocity and position updates and on
+	// evaluations in the last iteration, only kept with metrics on
+	private long[] chunkUpdateNanos;
+	private long[] chunkEvalNanos;
+
+	// where the time of the iterations goes, null when metrics are off
+	private PhaseMetrics metrics;
+	private int[] improvedIndices;
 
 	//New constructor so we can define the swarm
+	//the data of the given particles is copied into the swarm's state
 	public Swarm(int numParticles, Function function, Particle[] swarm) {
 		this.function = function;
 		this.numParticles = numParticles;
-		this.swarm = swarm;
+		this.rand = new Rng();
+		this.state = new SwarmState(numParticles, function.getDimensions());
+		this.swarm = new Particle[numParticles];
+		for (int i = 0; i < numParticles; i++) {
+			this.state.copyParticle(swarm[i].getState(), swarm[i].getIndex(), i);
+			this.swarm[i] = new Particle(function, this.state, i, false);
+		}
+		this.createChunks(1);
 	}
 	
 	public Swarm(int numParticles, Function function) {
+		this(numParticles, function, new Rng().nextLong());
+	}
+	
+	// the swarm's random numbers are drawn from a generator seeded with
+	// seed, and every particle gets its own stream split off from it
+	public Swarm(int numParticles, Function function, long seed) {
 		this.function = function;
 		this.numParticles = numParticles;
+		this.rand = new Rng(seed);
+		this.state = new SwarmState(numParticles, function.getDimensions());
 		this.swarm = new Particle[numParticles];
 		for (int i = 0; i < numParticles; i++) {
-			this.swarm[i] = new Particle(function);
+			this.swarm[i] = new Particle(function, this.state, i, true, this.rand.split());
 		}
+		this.createChunks(1);
 
 	}
 
 	public void createNbhds(String nbhd) {
+		this.topology = null;
+		this.isChangedNbhd = null;
 		if (nbhd.equals("gl")) {
 			this.createGlNbhd();
 		}
@@ -65,10 +129,14 @@ public class Swarm {
 			this.createRiNbhds();
 		}
 		if (nbhd.equals("vn")) {
-			this.createVnNbhds(this.createParticleGrid());
+			this.createVnNbhds();
 		}
 		this.nbhdBestValues = new double[this.numNbhds];
-		this.nbhdBestPositions = new double[this.numNbhds][this.function.getDimensions()];
+		this.nbhdBestPositions = new double[this.numNbhds * this.function.getDimensions()];
+		this.globalBestPosition = new double[this.function.getDimensions()];
+		this.changedNbhds = new int[this.numNbhds];
+		this.isChangedNbhd = new boolean[this.numNbhds];
+		this.numChangedNbhds = 0;
 
 		// updates neighborhood and global bests
 		this.preIterationSetup();
@@ -87,10 +155,7 @@ public class Swarm {
 	public void createGlNbhd() {
 		this.numNbhds = 1;
 		this.nbhdType = "gl";
-
-		this.nbhds = new Particle[this.numNbhds][this.numParticles];
-		this.nbhds[0] = this.swarm;
-
+		this.topology = Topology.global(this.numParticles);
 	}
 
 	// random
@@ -98,45 +163,40 @@ public class Swarm {
 
 		this.numNbhds = this.numParticles;
 		this.nbhdType = "ra";
-
-		this.nbhds = new Particle[this.numNbhds][RAND_NBHD_SZ];
+		this.topology = Topology.random(this.numParticles, RAND_NBHD_SZ);
+		this.redrawNbhds = new int[this.numNbhds];
 
 		// create random neighborhoods with probability 1
 		this.randomizeNbhds(1.0);
 	}
 
-	// randomize neighborhoods for particles
+	// randomize neighborhoods for particles. the nbhds to redraw are
+	// picked first and then redrawn as one batch
 	public void randomizeNbhds(double probNewRandNbhd) {
+		int count = 0;
 		for (int i = 0; i < this.numParticles; i++) {
 			if (rand.nextDouble() < probNewRandNbhd) {
-				this.createRaNbhdForSingleParticle(i);
+				this.redrawNbhds[count++] = i;
+				this.markChangedNbhd(i);
 			}
 		}
+		if (count > 0) {
+			this.topology.drawRandomMembers(this.redrawNbhds, count, this.rand);
+		}
 	}
 
 	public void createRaNbhdForSingleParticle(int indexOfParticle) {
+		this.redrawNbhds[0] = indexOfParticle;
+		this.markChangedNbhd(indexOfParticle);
+		this.topology.drawRandomMembers(this.redrawNbhds, 1, this.rand);
+	}
 
-		// keep track of indices to ensure duplicate particles are not added to
-		// nbhd
-		ArrayList<Integer> indicesInCurrNbhd = new ArrayList<Integer>();
-
-		// add seed particle to its own nbhd
-		indicesInCurrNbhd.add(indexOfParticle);
-		this.nbhds[indexOfParticle][0] = swarm[indexOfParticle];
-
-		for (int i = 1; i < RAND_NBHD_SZ; i++) {
-			int possibleIndex = rand.nextInt(this.numParticles);
-
-			// generate new int index if it is already in the nbhd
-			while (indicesInCurrNbhd.contains(possibleIndex)) {
-				possibleIndex = rand.nextInt(this.numParticles);
-			}
-
-			// if unique int index, add the particle to nbhd
-			indicesInCurrNbhd.add(possibleIndex);
-			this.nbhds[indexOfParticle][i] = swarm[possibleIndex];
+	// recompute the best of a redrawn nbhd after the next particle update
+	private void markChangedNbhd(int nbhd) {
+		if (this.isChangedNbhd != null && !this.isChangedNbhd[nbhd]) {
+			this.isChangedNbhd[nbhd] = true;
+			this.changedNbhds[this.numChangedNbhds++] = nbhd;
 		}
-
 	}
 
 	//finds most fit particle and returns its index
@@ -147,11 +207,29 @@ public class Swarm {
 		for (int i = 1; i < particles.length; i++) {
 			if (particles[i].getValueOfIndivBest() < interimBestValue) {
 				interimBestIndex = i;
+				interimBestValue = particles[i].getValueOfIndivBest();
 			}
 		}
 		return interimBestIndex;
 
 	}
+
+	//finds the most fit member of a nbhd and returns its particle index
+	public int findBestMember(int nbhd) {
+		int[] offsets = this.topology.getOffsets();
+		int[] members = this.topology.getMembers();
+		double[] bestValues = this.state.bestValues;
+		int interimBestIndex = members[offsets[nbhd]];
+		double interimBestValue = bestValues[interimBestIndex];
+
+		for (int k = offsets[nbhd] + 1; k < offsets[nbhd + 1]; k++) {
+			if (bestValues[members[k]] < interimBestValue) {
+				interimBestIndex = members[k];
+				interimBestValue = bestValues[interimBestIndex];
+			}
+		}
+		return interimBestIndex;
+	}
 	
 	//loops through the values and checks if there is a new global best
 	public boolean updateGlobalBest() {
@@ -161,19 +239,114 @@ public class Swarm {
 		double iterationBestValue = this.swarm[iterationBestIndex].getValueOfIndivBest();
 		if (iterationBestValue < this.globalBestValue) {
 			this.globalBestValue = iterationBestValue;
-			this.globalBestPosition = this.swarm[iterationBestIndex].getIndivBestPos();
+			this.swarm[iterationBestIndex].copyIndivBestPos(this.globalBestPosition, 0);
 			return true;
 		}
 		return false;
 	}
 
 	//checks if there was a neww neighborhood best
+	//this rescans every nbhd, the iterations only use it when the
+	//individual bests changed outside of the PSO update
 	public void updateNbhdBests() {
 		for (int i = 0; i < this.numNbhds; i++) {
-			int nbhdBestIndex = this.findBestIndex(this.nbhds[i]);
-			this.nbhdBestValues[i] = this.nbhds[i][nbhdBestIndex].getValueOfIndivBest();
-			this.nbhdBestPositions[i] = this.nbhds[i][nbhdBestIndex].getIndivBestPos();
+			this.rescanNbhd(i);
+		}
+	}
+
+	//recomputes the best of a single nbhd from its members
+	private void rescanNbhd(int i) {
+		int nbhdBestIndex = this.findBestMember(i);
+		this.nbhdBestValues[i] = this.state.bestValues[nbhdBestIndex];
+		this.swarm[nbhdBestIndex].copyIndivBestPos(this.nbhdBestPositions, i * this.function.getDimensions());
+	}
+
+	//updates the nbhd and global bests after the particles were updated.
+	//a nbhd best can only change when one of its members improved its
+	//individual best, so each improvement is pushed to the nbhds the
+	//particle belongs to and the rest are left alone. returns true if
+	//there is a new global best
+	private boolean updateBests() {
+		if (this.metrics == null) {
+			return this.propagateBests();
+		}
+		long start = System.nanoTime();
+		boolean newGlobalBest = this.propagateBests();
+		this.metrics.add(PhaseMetrics.NBHD_UPDATE, System.nanoTime() - start);
+		return newGlobalBest;
+	}
+
+	private boolean propagateBests() {
+		if (this.needsRescan) {
+			return this.refreshBests();
+		}
+		this.refreshBests();
+
+		boolean global = this.nbhdType.equals("gl");
+		boolean newGlobalBest = false;
+		for (int c = 0; c < this.chunkStarts.length; c++) {
+			for (int j = this.chunkStarts[c]; j < this.chunkStarts[c] + this.chunkImproved[c]; j++) {
+				if (this.propagateImprovement(this.improvedIndices[j], global)) {
+					newGlobalBest = true;
+				}
+			}
+		}
+		return newGlobalBest;
+	}
+
+	//brings the nbhd and global bests up to date with what changed outside
+	//of the particle updates: every nbhd after selection, or the nbhds
+	//redrawn since the last update. returns true if there is a new
+	//global best
+	public boolean refreshBests() {
+		boolean global = this.nbhdType.equals("gl");
+		if (this.needsRescan) {
+			this.needsRescan = false;
+			this.clearChangedNbhds();
+			if (!global) {
+				this.updateNbhdBests();
+			}
+			return this.updateGlobalBest();
+		}
+
+		if (!global) {
+			for (int k = 0; k < this.numChangedNbhds; k++) {
+				this.rescanNbhd(this.changedNbhds[k]);
+			}
 		}
+		this.clearChangedNbhds();
+		return false;
+	}
+
+	//pushes particle p's individual best to its nbhds and the global best
+	//returns true if it is a new global best
+	private boolean propagateImprovement(int p, boolean global) {
+		double value = this.state.bestValues[p];
+		if (!global) {
+			int dim = this.function.getDimensions();
+			int[] memberOffsets = this.topology.getMemberOffsets();
+			int[] memberNbhds = this.topology.getMemberNbhds();
+			for (int k = memberOffsets[p]; k < memberOffsets[p + 1]; k++) {
+				int nbhd = memberNbhds[k];
+				if (value < this.nbhdBestValues[nbhd]) {
+					this.nbhdBestValues[nbhd] = value;
+					this.swarm[p].copyIndivBestPos(this.nbhdBestPositions, nbhd * dim);
+				}
+			}
+		}
+		if (value < this.globalBestValue) {
+			this.globalBestValue = value;
+			this.swarm[p].copyIndivBestPos(this.globalBestPosition, 0);
+			return true;
+		}
+		return false;
+	}
+
+	private void clearChangedNbhds() {
+		for (int k = 0; k < this.numChangedNbhds; k++) {
+			this.isChangedNbhd[this.changedNbhds[k]] = false;
+		}
+		this.numChangedNbhds = 0;
 	}
 
 	//iterates once depending on neighborhood type
@@ -197,188 +370,356 @@ public class Swarm {
 	public boolean singleIterationGL() {
 		
 		// update particles
-		for (int i = 0; i < this.numParticles; i++) {
-			this.swarm[i].singleIteration(this.globalBestPosition);
-		}
-		return this.updateGlobalBest(); // true if new best found
+		this.updateParticles();
+		return this.updateBests(); // true if new best found
 	}
 	
 	// iteration for random neighborhood. returns true if the iteration produces
 	// new gBest
 	public boolean singleIterationRA() {
-		this.randomizeNbhds(PROB_NEW_RAND_NBHD);
+		if (this.metrics == null) {
+			this.randomizeNbhds(PROB_NEW_RAND_NBHD);
+		} else {
+			long start = System.nanoTime();
+			this.randomizeNbhds(PROB_NEW_RAND_NBHD);
+			this.metrics.add(PhaseMetrics.NBHD_UPDATE, System.nanoTime() - start);
+		}
 		return this.singleIterationRI();
 	}
 
 	// iteration for topologies that are neither global nor random
 	public boolean singleIterationRI() {
 		// update particles
-		for (int i = 0; i < this.numParticles; i++) {
-			// nbhd best of the nbhd that particle is the master of
-			this.swarm[i].singleIteration(this.nbhdBestPositions[i]);
-		}
-		this.updateNbhdBests();
-		return this.updateGlobalBest(); // true if new best found
+		this.updateParticles();
+		return this.updateBests(); // true if new best found
 	}
 
-	public String toString() {
-		String string1 = "numParticles: " + this.numParticles + "; Nbhd Type: " + this.nbhdType;
-		String string2 = "\nnumNbhds: " + this.nbhds.length + "; Nbhd size: " + this.nbhds[0].length;
-
-		String string = string1 + string2;
-		return string;
+	// updates every particle, on the pool if there is more than one chunk
+	private void updateParticles() {
+		// the cache takes the new points after every chunk is done, so the
+		// particles are screened the same whatever order the chunks run in
+		EvaluationCache cache = this.function.getCache();
+		if (cache != null) {
+			cache.beginDeferral();
+		}
+		try {
+			if (this.numThreads > 1) {
+				this.updateParticlesInParallel();
+			} else {
+				this.updateChunk(0);
+			}
+		} finally {
+			if (cache != null) {
+				cache.endDeferral();
+			}
+		}
+		if (this.metrics != null) {
+			for (int c = 0; c < this.chunkStarts.length; c++) {
+				this.metrics.add(PhaseMetrics.PSO_UPDATE, this.chunkUpdateNanos[c]);
+				this.metrics.add(PhaseMetrics.EVALUATION, this.chunkEvalNanos[c]);
+				this.metrics.addImprovements(this.chunkImproved[c]);
+			}
+		}
 	}
-	
-	//creates Ring Topology
-		public void createRiNbhds() {
-			this.numNbhds = this.numParticles;
-			this.nbhdType = "ri";
-
-			this.nbhds = new Particle[this.numNbhds][RING_NBHD_SZ];
 
-			for (int i = 0; i < this.numParticles - (RING_NBHD_SZ - 1); i++) {
-				nbhds[i] = Arrays.copyOfRange(this.swarm, i, i + RING_NBHD_SZ);
-			}
-			for (int i = this.numParticles - (RING_NBHD_SZ - 1); i < this.numParticles; i++) {
-				for (int j = 0; j < RING_NBHD_SZ; j++) {
-					nbhds[i][j] = swarm[(i + j) % this.numParticles];
-				}
+	// updates the particles of chunk c towards the nbhd best of the nbhd
+	// they are the master of, or the global best for the global topology,
+	// and records which of them improved their individual best. the new
+	// positions of the chunk are evaluated in one batch
+	private void updateChunk(int c) {
+		int dim = this.function.getDimensions();
+		boolean global = this.nbhdType.equals("gl");
+		int start = this.chunkStarts[c];
+		int end = this.chunkEnds[c];
+		long updateStart = this.metrics != null ? System.nanoTime() : 0;
+		for (int i = start; i < end; i++) {
+			Particle particle = this.swarm[i];
+			if (global) {
+				particle.updateVel(this.globalBestPosition, 0);
+			} else {
+				particle.updateVel(this.nbhdBestPositions, i * dim);
 			}
+			particle.updatePos();
+		}
+		long evalStart = this.metrics != null ? System.nanoTime() : 0;
+		this.evaluate(start, end - start);
+		if (this.metrics != null) {
+			this.chunkUpdateNanos[c] = evalStart - updateStart;
+			this.chunkEvalNanos[c] = System.nanoTime() - evalStart;
+		}
 
+		int numImproved = 0;
+		double[] values = this.state.values;
+		for (int i = start; i < end; i++) {
+			if (this.swarm[i].updateIndivBest(values[i])) {
+				this.improvedIndices[start + numImproved++] = i;
+			}
 		}
-		
-		// auxiliary method for von Neumann. creates the grid of particles
-		public Particle[][] createParticleGrid() {
-
-			// initialize grid dimensions: (n, n+1)
-			// Math.ceil returns upper bound on grid column size
-			int numCols = (int) Math.ceil(Math.sqrt(this.numParticles));
-			int numRows = numCols - 1;
-			
-			// check to see if grid row size is insufficient. if so, turn that baby
-			// into a square
-			if (this.numParticles > numCols * numRows) {
-				numRows += 1;
+		this.chunkImproved[c] = numImproved;
+	}
+
+	// moves particle i towards the best of the nbhd it is the master of,
+	// or the global best, without evaluating it. used by the
+	// asynchronous mode (see AsyncPso), which moves a particle from the
+	// bests known when its last evaluation returned
+	public void moveParticle(int i) {
+		Particle particle = this.swarm[i];
+		if (this.nbhdType.equals("gl")) {
+			particle.updateVel(this.globalBestPosition, 0);
+		} else {
+			particle.updateVel(this.nbhdBestPositions, i * this.function.getDimensions());
+		}
+		particle.updatePos();
+		this.state.markDirty(i);
+	}
+
+	// records value as the value of particle i's current position and
+	// pushes an improvement of its individual best to its nbhds and the
+	// global best at once, rather than at the end of an iteration.
+	// returns true if it is a new global best
+	public boolean completeEvaluation(int i, double value) {
+		this.state.values[i] = value;
+		this.state.dirty[i] = false;
+		if (!this.swarm[i].updateIndivBest(value)) {
+			return false;
+		}
+		if (this.needsRescan) {
+			return this.refreshBests();
+		}
+		return this.propagateImprovement(i, this.nbhdType.equals("gl"));
+	}
+
+	// evaluates the count particles from first in one batch and caches
+	// their values
+	private void evaluate(int first, int count) {
+		EvaluationCache cache = this.function.getCache();
+		if (cache != null && cache.hasSurrogate()) {
+			// only an individual best improvement is of use, so particles
+			// the surrogate predicts will not improve are not evaluated
+			SwarmState state = this.state;
+			for (int i = first; i < first + count; i++) {
+				state.values[i] = this.function.evalScreened(state.positions, state.offset(i), state.bestValues[i]);
+				state.dirty[i] = false;
 			}
+			return;
+		}
+		this.function.evalBatch(this.state.positions, first, count, this.state.values);
+		Arrays.fill(this.state.dirty, first, first + count, false);
+	}
 
-			// loop to create grid
-			Particle[][] grid = new Particle[numRows][numCols];
-			int indexOfCurrParticle = 0;
-			for (int r = 0; r < numRows; r++) {
-				
-				// fill by column because possibly more columns than rows
-				// i.e. filling by column ensures the grid is as square as possible
-				for (int c = 0; c < numCols; c++) {
-					if (indexOfCurrParticle < this.numParticles) {
-						grid[r][c] = swarm[indexOfCurrParticle];
-						indexOfCurrParticle++;
-					}
-				}
-			}
-			return grid;
-
-		}
-
-		// creates von neumann neighborhood for a single particle
-		public void createVnNbhdForSingleParticle(Particle[][] grid, int indexOfParticle) {
-
-			// find coordinates of particle in the grid
-			int r = indexOfParticle / grid[0].length;
-			int c = indexOfParticle % grid[0].length;
-
-			// put the seed particle in its own neighborhood
-			nbhds[indexOfParticle][0] = grid[r][c];
-			int currNbhdSize = 1;
-
-			// fill the neighborhood w.r.t. von Neumann for each vnDist
-			// i.e. all particles that are of taxicab distance of vnDist away
-			for (int vnDist = 1; vnDist <= VN_DIST; vnDist++) {
-				
-
-				// inc1 starts at max vnDist, inc2 at 0. can think of these two
-				// distances
-				// as vertical and horizontal distance. they must always add up to
-				// vnDist
-				int inc1 = vnDist;
-				int inc2 = 0;
-
-				// check each combo of vertical and horizontal distance
-				// each loop will increment inc1 by -1 and inc2 by 1, and then check
-				// all 4 quadrants
-				// around the seed particle (i.e. 4 particles are added to the nbhd
-				// per loop)
-				while (inc2 < vnDist) {
-
-					// essentially, given a point in quadrant 1, we are finding its
-					// mirror images
-					// of 90 degree rotations around the seed point.
-
-					// quadrant 1
-					nbhds[indexOfParticle][currNbhdSize] = 
-							grid[(inc1 + grid.length + r) % grid.length][(inc2 + grid[0].length + c)
-					               % grid[0].length];
-
-					// quadrant 2
-					nbhds[indexOfParticle][currNbhdSize + 1] = 
-							grid[(-inc1 + grid.length + r) % grid.length][(-inc2 + grid[0].length + c)
-									% grid[0].length];
-
-					// quadrant 3
-					nbhds[indexOfParticle][currNbhdSize + 2] = 
-							grid[(inc2 + grid.length + r) % grid.length][(-inc1 + grid[0].length + c)
-									% grid[0].length];
-
-					// quadrant 4
-					nbhds[indexOfParticle][currNbhdSize + 3] = 
-							grid[(-inc2 + grid.length + r) % grid.length][(inc1 + grid[0].length + c)
-									% grid[0].length];
-
-					// we added 4 particles to the nbhd
-					currNbhdSize += 4;
-
-					// change increments to check the next combo of
-					// vertical/horizontal distance
-					inc1--;
-					inc2++;
-				}
+	// evaluates every particle whose position changed since it was last
+	// evaluated, i.e. by the crossover and mutation of the GA
+	public void evaluateDirty() {
+		SwarmState state = this.state;
+		boolean[] dirty = state.dirty;
+		for (int i = 0; i < this.numParticles; i++) {
+			if (dirty[i]) {
+				state.values[i] = this.function.eval(state.positions, state.offset(i));
+				dirty[i] = false;
 			}
+		}
+	}
 
+	// splits the particles into numChunks contiguous chunks
+	private void createChunks(int numChunks) {
+		this.chunkStarts = new int[numChunks];
+		this.chunkEnds = new int[numChunks];
+		this.chunkImproved = new int[numChunks];
+		this.chunkUpdateNanos = new long[numChunks];
+		this.chunkEvalNanos = new long[numChunks];
+		this.improvedIndices = new int[this.numParticles];
+		for (int c = 0; c < numChunks; c++) {
+			this.chunkStarts[c] = (int) ((long) this.numParticles * c / numChunks);
+			this.chunkEnds[c] = (int) ((long) this.numParticles * (c + 1) / numChunks);
 		}
+	}
 
-		// von Neumann neighborhoods. this only works if numParticles is the product
-		// of
-		// consecutive integers, or the square of an integer
-		public void createVnNbhds(Particle[][] grid) {
+	// runs every chunk's particle updates on the pool and waits for all of
+	// them, which is the barrier before the nbhd and global bests are updated
+	private void updateParticlesInParallel() {
+		try {
+			for (Future<Void> update : this.pool.invokeAll(this.updates)) {
+				update.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Particle update interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Particle update failed", e.getCause());
+		}
+	}
 
-			this.numNbhds = this.numParticles;
-			this.nbhdType = "vn";
+	// updates the particles of one chunk
+	private class ParticleUpdate implements Callable<Void> {
+		private int chunk;
 
-			// equation below is # of particles in a VN nbhd given VN dist
-			int vnNbhdSize = 1 + 2 * VN_DIST * (VN_DIST + 1);
-			this.nbhds = new Particle[this.numNbhds][vnNbhdSize];
+		public ParticleUpdate(int chunk) {
+			this.chunk = chunk;
+		}
 
-			// loop through each "seed" particle in swarm to create nbhds.
-			for (int i = 0; i < this.numParticles; i++) {
-				this.createVnNbhdForSingleParticle(grid, i);
-			}
+		public Void call() {
+			updateChunk(this.chunk);
+			return null;
 		}
+	}
+
+	// releases the worker threads of the parallel mode, if any
+	public void shutdown() {
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		this.numThreads = 1;
+		this.createChunks(1);
+	}
+
+	// reorders the swarm so that particle i becomes a copy of particle
+	// sourceIndices[i]. the particle views and nbhds stay valid
+	public void select(int[] sourceIndices) {
+		this.state.select(sourceIndices);
+		this.needsRescan = true;
+	}
+
+	// bytes writeCheckpoint writes
+	public int checkpointSize() {
+		int dim = this.function.getDimensions();
+		return this.state.checkpointSize() + this.topology.checkpointSize()
+				+ 8 * (this.numNbhds + this.numNbhds * dim + 1 + dim) + 1
+				+ Checkpoint.RNG_SIZE * (1 + this.numParticles);
+	}
+
+	// writes the particles, nbhds, bests and random number generators to
+	// buffer, see Checkpoint. only valid between iterations
+	public void writeCheckpoint(ByteBuffer buffer) {
+		int dim = this.function.getDimensions();
+		this.state.writeCheckpoint(buffer);
+		this.topology.writeCheckpoint(buffer);
+		Checkpoint.putDoubles(buffer, this.nbhdBestValues, this.numNbhds);
+		Checkpoint.putDoubles(buffer, this.nbhdBestPositions, this.numNbhds * dim);
+		buffer.putDouble(this.globalBestValue);
+		Checkpoint.putDoubles(buffer, this.globalBestPosition, dim);
+		buffer.put(this.needsRescan ? (byte) 1 : (byte) 0);
+		Checkpoint.putRng(buffer, this.rand);
+		for (int i = 0; i < this.numParticles; i++) {
+			Checkpoint.putRng(buffer, this.swarm[i].getRng());
+		}
+	}
+
+	// reads what writeCheckpoint wrote into a swarm with the same size,
+	// function and nbhd type
+	public void readCheckpoint(ByteBuffer buffer) {
+		int dim = this.function.getDimensions();
+		this.state.readCheckpoint(buffer);
+		this.topology.readCheckpoint(buffer);
+		Checkpoint.getDoubles(buffer, this.nbhdBestValues, this.numNbhds);
+		Checkpoint.getDoubles(buffer, this.nbhdBestPositions, this.numNbhds * dim);
+		this.globalBestValue = buffer.getDouble();
+		Checkpoint.getDoubles(buffer, this.globalBestPosition, dim);
+		this.needsRescan = buffer.get() != 0;
+		Checkpoint.getRng(buffer, this.rand);
+		for (int i = 0; i < this.numParticles; i++) {
+			Checkpoint.getRng(buffer, this.swarm[i].getRng());
+		}
+		this.clearChangedNbhds();
+	}
+
+	// replaces the position and individual best of particle index with
+	// dim entries of position starting at offset, whose value is value.
+	// the velocity is kept. used to bring in migrants from other swarms
+	public void replaceParticle(int index, double[] position, int offset, double value) {
+		int to = this.state.offset(index);
+		int dim = this.function.getDimensions();
+		System.arraycopy(position, offset, this.state.positions, to, dim);
+		System.arraycopy(position, offset, this.state.bestPositions, to, dim);
+		this.state.values[index] = value;
+		this.state.dirty[index] = false;
+		this.state.bestValues[index] = value;
+		this.needsRescan = true;
+	}
+
+	public String toString() {
+		String string1 = "numParticles: " + this.numParticles + "; Nbhd Type: " + this.nbhdType;
+		String string2 = "\nnumNbhds: " + this.numNbhds + "; Nbhd size: " + this.topology.getNbhdSize(0);
+
+		String string = string1 + string2;
+		return string;
+	}
 	
+	//creates Ring Topology
+	public void createRiNbhds() {
+		this.numNbhds = this.numParticles;
+		this.nbhdType = "ri";
+		this.topology = Topology.ring(this.numParticles, RING_NBHD_SZ);
+	}
+
+	// von Neumann neighborhoods on a grid that is as square as possible.
+	// works for any numParticles, see Topology.vonNeumann
+	public void createVnNbhds() {
+		this.numNbhds = this.numParticles;
+		this.nbhdType = "vn";
+		this.topology = Topology.vonNeumann(this.numParticles, VN_DIST);
+	}
 
 	// Getters & Setters
 	public Particle[] getSwarm() {
 		return swarm;
 	}
 
+	// copies the data of the given particles into the swarm's state
 	public void setSwarm(Particle[] swarm) {
-		this.swarm = swarm;
+		SwarmState newState = new SwarmState(this.numParticles, this.function.getDimensions());
+		for (int i = 0; i < this.numParticles; i++) {
+			newState.copyParticle(swarm[i].getState(), swarm[i].getIndex(), i);
+		}
+		for (int i = 0; i < this.numParticles; i++) {
+			this.state.copyParticle(newState, i, i);
+		}
+		this.needsRescan = true;
+	}
+
+	public SwarmState getState() {
+		return state;
+	}
+
+	public Topology getTopology() {
+		return topology;
+	}
+
+	// replaces the nbhds with a topology of the same number of nbhds
+	public void setTopology(Topology topology) {
+		this.topology = topology;
+		this.needsRescan = true;
+	}
+
+	public int getRingNbhdSize() {
+		return RING_NBHD_SZ;
 	}
 
-	public Particle[][] getNbhds() {
-		return nbhds;
+	// takes effect the next time the nbhds are created
+	public void setRingNbhdSize(int ringNbhdSize) {
+		this.RING_NBHD_SZ = ringNbhdSize;
 	}
 
-	public void setNbhds(Particle[][] nbhds) {
-		this.nbhds = nbhds;
+	public int getVnDist() {
+		return VN_DIST;
+	}
+
+	// takes effect the next time the nbhds are created
+	public void setVnDist(int vnDist) {
+		this.VN_DIST = vnDist;
+	}
+
+	public int getRandNbhdSize() {
+		return RAND_NBHD_SZ;
+	}
+
+	// takes effect the next time the nbhds are created
+	public void setRandNbhdSize(int randNbhdSize) {
+		this.RAND_NBHD_SZ = randNbhdSize;
+	}
+
+	public double getProbNewRandNbhd() {
+		return PROB_NEW_RAND_NBHD;
 	}
 
 	public double[] getNbhdBestValues() {
@@ -389,6 +730,35 @@ public class Swarm {
 		this.nbhdBestValues = nbhdBestValues;
 	}
 
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	// selects sequential (1) or parallel (> 1) particle updates. the
+	// particles are split into one contiguous chunk per thread
+	public void setNumThreads(int numThreads) {
+		this.shutdown();
+		this.numThreads = Math.max(1, Math.min(numThreads, this.numParticles));
+		if (this.numThreads > 1) {
+			this.pool = new ForkJoinPool(this.numThreads);
+			this.createChunks(this.numThreads);
+			this.updates = new ArrayList<ParticleUpdate>();
+			for (int c = 0; c < this.numThreads; c++) {
+				this.updates.add(new ParticleUpdate(c));
+			}
+		}
+	}
+
+	public PhaseMetrics getMetrics() {
+		return metrics;
+	}
+
+	// accumulates the timings of the PSO phases into metrics from now
+	// on, null turns them off
+	public void setMetrics(PhaseMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	public int getNumParticles() {
 		return numParticles;
 	}
@@ -413,11 +783,11 @@ public class Swarm {
 		this.numNbhds = numNbhds;
 	}
 
-	public double[][] getNbhdBestPositions() {
+	public double[] getNbhdBestPositions() {
 		return nbhdBestPositions;
 	}
 
-	public void setNbhdBestPositions(double[][] nbhdBestPositions) {
+	public void setNbhdBestPositions(double[] nbhdBestPositions) {
 		this.nbhdBestPositions = nbhdBestPositions;
 	}
 
@@ -447,4 +817,4 @@ public class Swarm {
 	
 	
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,174 @@
+/*
+ * This file implements the storage behind a swarm. Rather than each
+ * particle owning its own position, velocity and personal best arrays,
+ * the whole swarm is kept in flat contiguous blocks where particle i
+ * occupies the entries [i*dim, (i+1)*dim). Particles are only views
+ * (an index) into these blocks, so the PSO update, the GA operators
+ * and the function evaluations all stream through the same memory
+ *
+ */
+
+import java.nio.ByteBuffer;
+
+public class SwarmState {
+
+	private int numParticles;
+	private int dim;
+
+	// flat blocks of numParticles * dim entries
+	public double[] positions;
+	public double[] velocities;
+	public double[] bestPositions;
+
+	// one entry per particle, the value of its personal best
+	public double[] bestValues;
+
+	// one entry per particle, the cached value of its current position.
+	// dirty is set whenever the position changes without being evaluated
+	public double[] values;
+	public boolean[] dirty;
+
+	// second set of blocks that selection gathers into before the two
+	// sets are swapped, so reordering the swarm does not allocate
+	private double[] nextPositions;
+	private double[] nextVelocities;
+	private double[] nextBestPositions;
+	private double[] nextBestValues;
+	private double[] nextValues;
+	private boolean[] nextDirty;
+
+	public SwarmState(int numParticles, int dim) {
+		this.numParticles = numParticles;
+		this.dim = dim;
+		this.positions = new double[numParticles * dim];
+		this.velocities = new double[numParticles * dim];
+		this.bestPositions = new double[numParticles * dim];
+		this.bestValues = new double[numParticles];
+		this.nextPositions = new double[numParticles * dim];
+		this.nextVelocities = new double[numParticles * dim];
+		this.nextBestPositions = new double[numParticles * dim];
+		this.nextBestValues = new double[numParticles];
+		this.values = new double[numParticles];
+		this.dirty = new boolean[numParticles];
+		this.nextValues = new double[numParticles];
+		this.nextDirty = new boolean[numParticles];
+	}
+
+	// index of the first entry of a particle in the flat blocks
+	public int offset(int index) {
+		return index * this.dim;
+	}
+
+	// copies all of a particle's data from another state into this one
+	public void copyParticle(SwarmState source, int sourceIndex, int destIndex) {
+		int from = source.offset(sourceIndex);
+		int to = this.offset(destIndex);
+		System.arraycopy(source.positions, from, this.positions, to, this.dim);
+		System.arraycopy(source.velocities, from, this.velocities, to, this.dim);
+		System.arraycopy(source.bestPositions, from, this.bestPositions, to, this.dim);
+		this.bestValues[destIndex] = source.bestValues[sourceIndex];
+		this.values[destIndex] = source.values[sourceIndex];
+		this.dirty[destIndex] = source.dirty[sourceIndex];
+	}
+
+	// rebuilds the swarm so that particle i becomes a copy of particle
+	// sourceIndices[i]. used by GA selection, where the same particle
+	// can be picked several times
+	public void select(int[] sourceIndices) {
+		for (int i = 0; i < this.numParticles; i++) {
+			int from = this.offset(sourceIndices[i]);
+			int to = this.offset(i);
+			System.arraycopy(this.positions, from, this.nextPositions, to, this.dim);
+			System.arraycopy(this.velocities, from, this.nextVelocities, to, this.dim);
+			System.arraycopy(this.bestPositions, from, this.nextBestPositions, to, this.dim);
+			this.nextBestValues[i] = this.bestValues[sourceIndices[i]];
+			this.nextValues[i] = this.values[sourceIndices[i]];
+			this.nextDirty[i] = this.dirty[sourceIndices[i]];
+		}
+
+		double[] temp = this.positions;
+		this.positions = this.nextPositions;
+		this.nextPositions = temp;
+
+		temp = this.velocities;
+		this.velocities = this.nextVelocities;
+		this.nextVelocities = temp;
+
+		temp = this.bestPositions;
+		this.bestPositions = this.nextBestPositions;
+		this.nextBestPositions = temp;
+
+		temp = this.bestValues;
+		this.bestValues = this.nextBestValues;
+		this.nextBestValues = temp;
+
+		temp = this.values;
+		this.values = this.nextValues;
+		this.nextValues = temp;
+
+		boolean[] tempDirty = this.dirty;
+		this.dirty = this.nextDirty;
+		this.nextDirty = tempDirty;
+	}
+
+	// marks the cached value of a particle's position as out of date
+	public void markDirty(int index) {
+		this.dirty[index] = true;
+	}
+
+	// swaps coordinate i (position and velocity) between two particles
+	// and marks both of their cached values as out of date
+	public void swapCoordinate(int index1, int index2, int i) {
+		this.dirty[index1] = true;
+		this.dirty[index2] = true;
+		int a = this.offset(index1) + i;
+		int b = this.offset(index2) + i;
+		double tempPos = this.positions[a];
+		this.positions[a] = this.positions[b];
+		this.positions[b] = tempPos;
+		double tempVel = this.velocities[a];
+		this.velocities[a] = this.velocities[b];
+		this.velocities[b] = tempVel;
+	}
+
+	// bytes writeCheckpoint writes
+	public int checkpointSize() {
+		return 8 * (3 * this.numParticles * this.dim + 2 * this.numParticles) + this.numParticles;
+	}
+
+	// writes the particle data to buffer, see Checkpoint
+	public void writeCheckpoint(ByteBuffer buffer) {
+		int size = this.numParticles * this.dim;
+		Checkpoint.putDoubles(buffer, this.positions, size);
+		Checkpoint.putDoubles(buffer, this.velocities, size);
+		Checkpoint.putDoubles(buffer, this.bestPositions, size);
+		Checkpoint.putDoubles(buffer, this.bestValues, this.numParticles);
+		Checkpoint.putDoubles(buffer, this.values, this.numParticles);
+		for (int i = 0; i < this.numParticles; i++) {
+			buffer.put(this.dirty[i] ? (byte) 1 : (byte) 0);
+		}
+	}
+
+	// reads the particle data written by writeCheckpoint
+	public void readCheckpoint(ByteBuffer buffer) {
+		int size = this.numParticles * this.dim;
+		Checkpoint.getDoubles(buffer, this.positions, size);
+		Checkpoint.getDoubles(buffer, this.velocities, size);
+		Checkpoint.getDoubles(buffer, this.bestPositions, size);
+		Checkpoint.getDoubles(buffer, this.bestValues, this.numParticles);
+		Checkpoint.getDoubles(buffer, this.values, this.numParticles);
+		for (int i = 0; i < this.numParticles; i++) {
+			this.dirty[i] = buffer.get() != 0;
+		}
+	}
+
+	// Getters
+
+	public int getNumParticles() {
+		return numParticles;
+	}
+
+	public int getDim() {
+		return dim;
+	}
+}
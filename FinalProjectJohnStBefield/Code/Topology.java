@@ -0,0 +1,270 @@
+/*
+ * This file implements the neighborhood topologies of a swarm as
+ * index tables in compressed sparse row form. The members of nbhd i
+ * are the particle indices members[offsets[i]] to
+ * members[offsets[i + 1] - 1], and the first member of every nbhd
+ * but the global one is the particle the nbhd belongs to
+ *
+ * The reverse table lists, for each particle p, the nbhds it belongs
+ * to: memberNbhds[memberOffsets[p]] to memberNbhds[memberOffsets[p + 1] - 1]
+ *
+ * The tables only hold indices, so they stay valid when selection
+ * reorders the swarm's state, and any swarm size is supported
+ *
+ * Random nbhds are redrawn in place with Floyd's algorithm, using a
+ * generation-stamp array to mark the particles already drawn, so
+ * redrawing does not allocate
+ *
+ */
+
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class Topology {
+
+	private int numParticles;
+	private int numNbhds;
+
+	private int[] offsets;
+	private int[] members;
+
+	private int[] memberOffsets;
+	private int[] memberNbhds;
+	// scratch used when the reverse table is rebuilt
+	private int[] fill;
+
+	// stamps[p] == generation marks particle p as drawn for the nbhd
+	// being redrawn. a new generation clears every mark at once
+	private int[] stamps;
+	private int generation;
+
+	// a topology with the given nbhd sizes, whose members are filled in afterwards
+	private Topology(int numParticles, int[] nbhdSizes) {
+		this.numParticles = numParticles;
+		this.numNbhds = nbhdSizes.length;
+		this.offsets = new int[this.numNbhds + 1];
+		for (int i = 0; i < this.numNbhds; i++) {
+			this.offsets[i + 1] = this.offsets[i] + nbhdSizes[i];
+		}
+		this.members = new int[this.offsets[this.numNbhds]];
+		this.memberOffsets = new int[numParticles + 1];
+		this.memberNbhds = new int[this.members.length];
+		this.fill = new int[numParticles];
+		this.stamps = new int[numParticles];
+	}
+
+	// one nbhd holding the whole swarm
+	public static Topology global(int numParticles) {
+		Topology topology = new Topology(numParticles, new int[] { numParticles });
+		for (int p = 0; p < numParticles; p++) {
+			topology.members[p] = p;
+		}
+		topology.rebuildReverse();
+		return topology;
+	}
+
+	// nbhd i is particle i and the ringSize - 1 particles after it,
+	// wrapping around the end of the swarm
+	public static Topology ring(int numParticles, int ringSize) {
+		ringSize = Math.max(1, Math.min(ringSize, numParticles));
+		Topology topology = new Topology(numParticles, filled(numParticles, ringSize));
+		for (int i = 0; i < numParticles; i++) {
+			for (int j = 0; j < ringSize; j++) {
+				topology.members[topology.offsets[i] + j] = (i + j) % numParticles;
+			}
+		}
+		topology.rebuildReverse();
+		return topology;
+	}
+
+	// the particles are laid out row by row on a toroidal grid that is as
+	// square as possible, and nbhd i is particle i and every particle
+	// within taxicab distance vnDist of it. when numParticles does not
+	// fill the grid the last row is shorter, and moves into that row wrap
+	// around its length. particles reached twice on small grids are only
+	// counted once
+	public static Topology vonNeumann(int numParticles, int vnDist) {
+
+		// grid dimensions: (n, n+1), or a square if that is too small
+		int numCols = (int) Math.ceil(Math.sqrt(numParticles));
+		int numRows = numCols - 1;
+		if (numParticles > numCols * numRows) {
+			numRows += 1;
+		}
+		numRows = Math.max(1, numRows);
+		int lastRowLength = numParticles - (numRows - 1) * numCols;
+
+		// the offsets (vertical, horizontal) of every cell within vnDist,
+		// in the order the nbhds have always been filled
+		int maxSize = 1 + 2 * vnDist * (vnDist + 1);
+		int[] rowSteps = new int[maxSize - 1];
+		int[] colSteps = new int[maxSize - 1];
+		int numSteps = 0;
+		for (int dist = 1; dist <= vnDist; dist++) {
+			// inc1 and inc2 are the vertical and horizontal distance,
+			// they always add up to dist. each combo is rotated into
+			// all 4 quadrants around the seed particle
+			for (int inc1 = dist, inc2 = 0; inc2 < dist; inc1--, inc2++) {
+				int[] rows = new int[] { inc1, -inc1, inc2, -inc2 };
+				int[] cols = new int[] { inc2, -inc2, -inc1, inc1 };
+				for (int q = 0; q < 4; q++) {
+					rowSteps[numSteps] = rows[q];
+					colSteps[numSteps] = cols[q];
+					numSteps++;
+				}
+			}
+		}
+
+		int[][] nbhds = new int[numParticles][];
+		int[] sizes = new int[numParticles];
+		int[] stamp = new int[numParticles];
+		int[] buffer = new int[maxSize];
+		for (int p = 0; p < numParticles; p++) {
+			int r = p / numCols;
+			int c = p % numCols;
+			int size = 0;
+			buffer[size++] = p;
+			stamp[p] = p + 1;
+			for (int s = 0; s < numSteps; s++) {
+				int row = Math.floorMod(r + rowSteps[s], numRows);
+				int rowLength = (row == numRows - 1) ? lastRowLength : numCols;
+				int col = Math.floorMod(c + colSteps[s], rowLength);
+				int q = row * numCols + col;
+				if (stamp[q] != p + 1) {
+					stamp[q] = p + 1;
+					buffer[size++] = q;
+				}
+			}
+			nbhds[p] = Arrays.copyOf(buffer, size);
+			sizes[p] = size;
+		}
+
+		Topology topology = new Topology(numParticles, sizes);
+		for (int p = 0; p < numParticles; p++) {
+			System.arraycopy(nbhds[p], 0, topology.members, topology.offsets[p], sizes[p]);
+		}
+		topology.rebuildReverse();
+		return topology;
+	}
+
+	// one nbhd of nbhdSize per particle, with the particle itself first.
+	// until the other members are drawn the nbhds are the same as a ring's
+	public static Topology random(int numParticles, int nbhdSize) {
+		return ring(numParticles, nbhdSize);
+	}
+
+	private static int[] filled(int length, int value) {
+		int[] values = new int[length];
+		Arrays.fill(values, value);
+		return values;
+	}
+
+	// sets member slot of nbhd. the members of a nbhd must stay distinct,
+	// and rebuildReverse must be called once all the changes are made
+	public void setMember(int nbhd, int slot, int particle) {
+		this.members[this.offsets[nbhd] + slot] = particle;
+	}
+
+	// redraws the members of nbhd after its first one: nbhd size - 1
+	// distinct particles other than the first member, uniformly at
+	// random. call rebuildReverse once all the changes are made
+	public void drawRandomMembers(int nbhd, Rng rand) {
+		int start = this.offsets[nbhd];
+		int seed = this.members[start];
+		int numDrawn = this.offsets[nbhd + 1] - start - 1;
+
+		if (++this.generation == 0) {
+			Arrays.fill(this.stamps, 0);
+			this.generation = 1;
+		}
+
+		// Floyd's algorithm over the numParticles - 1 particles other than
+		// seed, where candidate c stands for particle c, or c + 1 from seed on
+		int numCandidates = this.numParticles - 1;
+		for (int j = numCandidates - numDrawn; j < numCandidates; j++) {
+			int candidate = rand.nextInt(j + 1);
+			int particle = candidate < seed ? candidate : candidate + 1;
+			if (this.stamps[particle] == this.generation) {
+				particle = j < seed ? j : j + 1;
+			}
+			this.stamps[particle] = this.generation;
+			this.members[++start] = particle;
+		}
+	}
+
+	// redraws the first count nbhds listed in nbhds and rebuilds the
+	// reverse table once
+	public void drawRandomMembers(int[] nbhds, int count, Rng rand) {
+		for (int i = 0; i < count; i++) {
+			this.drawRandomMembers(nbhds[i], rand);
+		}
+		this.rebuildReverse();
+	}
+
+	// rebuilds the reverse table from the members, with a counting sort
+	// that does not allocate
+	public void rebuildReverse() {
+		Arrays.fill(this.memberOffsets, 0);
+		for (int k = 0; k < this.members.length; k++) {
+			this.memberOffsets[this.members[k] + 1]++;
+		}
+		for (int p = 0; p < this.numParticles; p++) {
+			this.memberOffsets[p + 1] += this.memberOffsets[p];
+			this.fill[p] = this.memberOffsets[p];
+		}
+		for (int i = 0; i < this.numNbhds; i++) {
+			for (int k = this.offsets[i]; k < this.offsets[i + 1]; k++) {
+				int p = this.members[k];
+				this.memberNbhds[this.fill[p]++] = i;
+			}
+		}
+	}
+
+	// bytes writeCheckpoint writes
+	public int checkpointSize() {
+		return 4 * this.members.length;
+	}
+
+	// writes the members to buffer, see Checkpoint. the rest of the
+	// tables follow from them
+	public void writeCheckpoint(ByteBuffer buffer) {
+		Checkpoint.putInts(buffer, this.members, this.members.length);
+	}
+
+	// reads the members written by writeCheckpoint
+	public void readCheckpoint(ByteBuffer buffer) {
+		Checkpoint.getInts(buffer, this.members, this.members.length);
+		this.rebuildReverse();
+	}
+
+	// Getters
+
+	public int getNumParticles() {
+		return numParticles;
+	}
+
+	public int getNumNbhds() {
+		return numNbhds;
+	}
+
+	public int getNbhdSize(int nbhd) {
+		return this.offsets[nbhd + 1] - this.offsets[nbhd];
+	}
+
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	public int[] getMembers() {
+		return members;
+	}
+
+	public int[] getMemberOffsets() {
+		return memberOffsets;
+	}
+
+	public int[] getMemberNbhds() {
+		return memberNbhds;
+	}
+}
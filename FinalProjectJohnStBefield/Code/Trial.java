@@ -0,0 +1,121 @@
+/*
+ * This file holds everything a running trial of the hybrid is made
+ * of: the function, the swarm and the GA evolving it, the trace so
+ * far, how many iterations are done and how long they took. Hybrid
+ * creates and runs trials, and checkpoints them with Checkpoint so
+ * they can be resumed exactly where they left off
+ * 
+ */
+
+import java.nio.ByteBuffer;
+
+public class Trial {
+
+	private int functionNum;
+	private long seed;
+	private Function function;
+	private Swarm swarm;
+	private GA ga;
+	private double[] trace;
+
+	private int iterations; // iterations completed
+	private int globalBestIteration;
+	private long elapsedNanos; // run time up to the last update
+
+	public Trial(int functionNum, long seed, Function function, Swarm swarm, GA ga, double[] trace) {
+		this.functionNum = functionNum;
+		this.seed = seed;
+		this.function = function;
+		this.swarm = swarm;
+		this.ga = ga;
+		this.trace = trace;
+	}
+
+	// bytes writeCheckpoint writes
+	public int checkpointSize() {
+		EvaluationCache cache = this.function.getCache();
+		return 4 + 4 + 8 + 8 + 8 * this.trace.length
+				+ this.swarm.checkpointSize() + Checkpoint.RNG_SIZE
+				+ (cache == null ? 0 : cache.checkpointSize());
+	}
+
+	// writes the whole trial to buffer, see Checkpoint. only valid
+	// between iterations
+	public void writeCheckpoint(ByteBuffer buffer) {
+		buffer.putInt(this.iterations);
+		buffer.putInt(this.globalBestIteration);
+		buffer.putLong(this.elapsedNanos);
+		buffer.putLong(this.function.getEvaluations());
+		Checkpoint.putDoubles(buffer, this.trace, this.trace.length);
+		this.swarm.writeCheckpoint(buffer);
+		Checkpoint.putRng(buffer, this.ga.getRng());
+		if (this.function.getCache() != null) {
+			this.function.getCache().writeCheckpoint(buffer);
+		}
+	}
+
+	// reads what writeCheckpoint wrote into a trial created with the
+	// same parameters
+	public void readCheckpoint(ByteBuffer buffer) {
+		this.iterations = buffer.getInt();
+		this.globalBestIteration = buffer.getInt();
+		this.elapsedNanos = buffer.getLong();
+		this.function.setEvaluations(buffer.getLong());
+		Checkpoint.getDoubles(buffer, this.trace, this.trace.length);
+		this.swarm.readCheckpoint(buffer);
+		Checkpoint.getRng(buffer, this.ga.getRng());
+		if (this.function.getCache() != null) {
+			this.function.getCache().readCheckpoint(buffer);
+		}
+	}
+
+	// Getters & Setters
+
+	public int getFunctionNum() {
+		return functionNum;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public Function getFunction() {
+		return function;
+	}
+
+	public Swarm getSwarm() {
+		return swarm;
+	}
+
+	public GA getGa() {
+		return ga;
+	}
+
+	public double[] getTrace() {
+		return trace;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+
+	public int getGlobalBestIteration() {
+		return globalBestIteration;
+	}
+
+	public void setGlobalBestIteration(int globalBestIteration) {
+		this.globalBestIteration = globalBestIteration;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * This file describes one cell of an experiment: the parameters of
+ * a hybrid and the function it is run on. Jobs are independent of
+ * each other, so any number of them can run at the same time
+ * 
+ */
+
+public class TrialJob {
+
+	private int id;
+	private double cutRatio;
+	private double mutProb;
+	private double crossProb;
+	private int numParticles;
+	private int dim;
+	private int maxIterations;
+	private String nbhdType;
+	private String crossMethod;
+	private String sel;
+	private int functionNum;
+	private long seed;
+	// ends the trial early, null to run all maxIterations
+	private StoppingCriterion stoppingCriterion;
+
+	public TrialJob(int id, double cutRatio, double mutProb, double crossProb,
+			int numParticles, int dim, int maxIterations,
+			String nbhdType, String crossMethod, String sel, int functionNum, long seed) {
+		this.id = id;
+		this.cutRatio = cutRatio;
+		this.mutProb = mutProb;
+		this.crossProb = crossProb;
+		this.numParticles = numParticles;
+		this.dim = dim;
+		this.maxIterations = maxIterations;
+		this.nbhdType = nbhdType;
+		this.crossMethod = crossMethod;
+		this.sel = sel;
+		this.functionNum = functionNum;
+		this.seed = seed;
+	}
+
+	// runs the trial on a hybrid of its own
+	public TrialResult run() {
+		Hybrid hybrid = new Hybrid(this.cutRatio, this.mutProb, this.crossProb,
+				this.numParticles, this.dim, this.maxIterations,
+				this.nbhdType, this.crossMethod, this.sel);
+		hybrid.setSeed(this.seed);
+		hybrid.setStoppingCriterion(this.stoppingCriterion);
+		return hybrid.runTrial(this.functionNum);
+	}
+
+	// rough relative cost of the job, used to start the longest jobs first
+	public double getExpectedCost() {
+		return (double) this.numParticles * this.dim * this.maxIterations;
+	}
+
+	public String toString() {
+		return "CrossMethod: " + this.crossMethod + ". Nbhd: " + this.nbhdType
+				+ ". NumParticles: " + this.numParticles + ". Crossprob: " + this.crossProb
+				+ ". MutProb: " + this.mutProb + ". CutRatio: " + this.cutRatio
+				+ ". Sel: " + this.sel + ". Function: " + this.functionNum;
+	}
+
+	// Getters & Setters
+
+	public int getId() {
+		return id;
+	}
+
+	public double getCutRatio() {
+		return cutRatio;
+	}
+
+	public double getMutProb() {
+		return mutProb;
+	}
+
+	public double getCrossProb() {
+		return crossProb;
+	}
+
+	public int getNumParticles() {
+		return numParticles;
+	}
+
+	public int getDim() {
+		return dim;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public String getNbhdType() {
+		return nbhdType;
+	}
+
+	public String getCrossMethod() {
+		return crossMethod;
+	}
+
+	public String getSel() {
+		return sel;
+	}
+
+	public int getFunctionNum() {
+		return functionNum;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public StoppingCriterion getStoppingCriterion() {
+		return stoppingCriterion;
+	}
+
+	public void setStoppingCriterion(StoppingCriterion stoppingCriterion) {
+		this.stoppingCriterion = stoppingCriterion;
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * This file defines the JDK Flight Recorder event written at the end
+ * of a trial with metrics enabled, holding its PhaseMetrics
+ * 
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("hybrid.TrialMetrics")
+@Label("Hybrid Trial Metrics")
+@Category("Hybrid")
+@Description("Time per phase, evaluations, improvements and allocations of a trial")
+public class TrialMetricsEvent extends Event {
+
+	@Label("Function")
+	public int functionNum;
+
+	@Label("Iterations")
+	public long iterations;
+
+	@Label("PSO Update") @Timespan(Timespan.NANOSECONDS)
+	public long psoUpdate;
+
+	@Label("Evaluation") @Timespan(Timespan.NANOSECONDS)
+	public long evaluation;
+
+	@Label("Nbhd Update") @Timespan(Timespan.NANOSECONDS)
+	public long nbhdUpdate;
+
+	@Label("GA Sort") @Timespan(Timespan.NANOSECONDS)
+	public long gaSort;
+
+	@Label("Selection") @Timespan(Timespan.NANOSECONDS)
+	public long selection;
+
+	@Label("Crossover") @Timespan(Timespan.NANOSECONDS)
+	public long crossover;
+
+	@Label("Mutation") @Timespan(Timespan.NANOSECONDS)
+	public long mutation;
+
+	@Label("Evaluations")
+	public long evaluations;
+
+	@Label("Improvements")
+	public long improvements;
+
+	@Label("Allocated Bytes")
+	public long allocatedBytes;
+
+	// commits an event holding metrics
+	public static void commit(int functionNum, PhaseMetrics metrics) {
+		TrialMetricsEvent event = new TrialMetricsEvent();
+		if (!event.isEnabled()) {
+			return;
+		}
+		event.functionNum = functionNum;
+		event.iterations = metrics.getIterations();
+		event.psoUpdate = metrics.getPhaseNanos(PhaseMetrics.PSO_UPDATE);
+		event.evaluation = metrics.getPhaseNanos(PhaseMetrics.EVALUATION);
+		event.nbhdUpdate = metrics.getPhaseNanos(PhaseMetrics.NBHD_UPDATE);
+		event.gaSort = metrics.getPhaseNanos(PhaseMetrics.GA_SORT);
+		event.selection = metrics.getPhaseNanos(PhaseMetrics.SELECTION);
+		event.crossover = metrics.getPhaseNanos(PhaseMetrics.CROSSOVER);
+		event.mutation = metrics.getPhaseNanos(PhaseMetrics.MUTATION);
+		event.evaluations = metrics.getEvaluations();
+		event.improvements = metrics.getImprovements();
+		event.allocatedBytes = metrics.getAllocatedBytes();
+		event.commit();
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * This file describes how far a running trial has got, for the
+ * stopping criteria to look at. Hybrid updates one instance after
+ * every iteration
+ * 
+ */
+
+public class TrialProgress {
+
+	private int iterations; // iterations completed
+	private double globalBestValue;
+	private int globalBestIteration;
+	private long evaluations;
+	private long elapsedNanos;
+
+	// records the state of the trial after an iteration
+	public void update(int iterations, double globalBestValue, int globalBestIteration,
+			long evaluations, long elapsedNanos) {
+		this.iterations = iterations;
+		this.globalBestValue = globalBestValue;
+		this.globalBestIteration = globalBestIteration;
+		this.evaluations = evaluations;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	// Getters
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public double getGlobalBestValue() {
+		return globalBestValue;
+	}
+
+	public int getGlobalBestIteration() {
+		return globalBestIteration;
+	}
+
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+}
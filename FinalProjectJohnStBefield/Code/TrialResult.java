@@ -0,0 +1,113 @@
+/*
+ * This file holds the outcome of one trial of the hybrid: the best
+ * value found, when it was found, how long the trial took, the
+ * global best recorded every TRACE_INTERVAL iterations, and how many
+ * iterations ran and why the trial stopped
+ * 
+ */
+
+public class TrialResult {
+
+	// iterations between two entries of the convergence trace
+	public static final int TRACE_INTERVAL = 500;
+
+	private int functionNum;
+	private double cutRatio;
+	private long seed;
+	private double globalBestValue;
+	private int globalBestIteration;
+	private double runTime; // seconds
+	private long evaluations;
+	private double[] trace;
+	private int iterations;
+	private String stopReason; // see StoppingCriteria
+	private PhaseMetrics metrics; // null unless metrics were enabled
+	private CacheStats cacheStats; // null unless the trial had an EvaluationCache
+
+	public TrialResult(int functionNum, double cutRatio, long seed, double globalBestValue,
+			int globalBestIteration, double runTime, long evaluations, double[] trace,
+			int iterations, String stopReason) {
+		this.functionNum = functionNum;
+		this.cutRatio = cutRatio;
+		this.seed = seed;
+		this.globalBestValue = globalBestValue;
+		this.globalBestIteration = globalBestIteration;
+		this.runTime = runTime;
+		this.evaluations = evaluations;
+		this.trace = trace;
+		this.iterations = iterations;
+		this.stopReason = stopReason;
+	}
+
+	// the layout Hybrid.trial has always returned:
+	// [0] = gBest value, cutRatio, functionNum, gBest iteration, runTime
+	// [1] = the convergence trace
+	public double[][] toStats() {
+		double[][] trialStats = new double[2][Math.max(5, this.trace.length)];
+		trialStats[0][0] = this.globalBestValue;
+		trialStats[0][1] = this.cutRatio;
+		trialStats[0][2] = this.functionNum;
+		trialStats[0][3] = this.globalBestIteration;
+		trialStats[0][4] = this.runTime;
+		System.arraycopy(this.trace, 0, trialStats[1], 0, this.trace.length);
+		return trialStats;
+	}
+
+	// Getters & Setters
+
+	public int getFunctionNum() {
+		return functionNum;
+	}
+
+	public double getCutRatio() {
+		return cutRatio;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public double getGlobalBestValue() {
+		return globalBestValue;
+	}
+
+	public int getGlobalBestIteration() {
+		return globalBestIteration;
+	}
+
+	public double getRunTime() {
+		return runTime;
+	}
+
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	public double[] getTrace() {
+		return trace;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public String getStopReason() {
+		return stopReason;
+	}
+
+	public PhaseMetrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(PhaseMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public CacheStats getCacheStats() {
+		return cacheStats;
+	}
+
+	public void setCacheStats(CacheStats cacheStats) {
+		this.cacheStats = cacheStats;
+	}
+}
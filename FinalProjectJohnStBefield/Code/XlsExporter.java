@@ -0,0 +1,115 @@
+/*
+ * This file produces the .xls workbook Playground used to build in
+ * memory, from the trials in a results file written by
+ * ColumnarResultSink. There is one sheet per cut ratio, and within a
+ * sheet every (numParticles, crossMethod, function) cell sits at the
+ * same rows and columns as before
+ * 
+ * Usage: java XlsExporter <results file> <xls file>
+ * 
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import jxl.Workbook;
+import jxl.write.Label;
+import jxl.write.Number;
+import jxl.write.WritableSheet;
+import jxl.write.WritableWorkbook;
+import jxl.write.WriteException;
+
+public class XlsExporter implements ResultSink {
+
+	private File file;
+	private List<TrialJob> jobs = new ArrayList<TrialJob>();
+	private List<TrialResult> results = new ArrayList<TrialResult>();
+
+	public XlsExporter(File file) {
+		this.file = file;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: java XlsExporter <results file> <xls file>");
+			return;
+		}
+		XlsExporter exporter = new XlsExporter(new File(args[1]));
+		int numTrials = ColumnarResultReader.read(new File(args[0]), exporter);
+		exporter.close();
+		System.out.println("Exported " + numTrials + " trials to " + args[1]);
+	}
+
+	// trials are collected and the workbook is written on close
+	public void write(TrialJob job, TrialResult result) {
+		this.jobs.add(job);
+		this.results.add(result);
+	}
+
+	public void close() throws IOException {
+		// lay the trials out in the order of the experiment's grid
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < this.jobs.size(); i++) {
+			order.add(i);
+		}
+		Collections.sort(order, Comparator.comparingInt(i -> this.jobs.get(i).getId()));
+
+		// positions of the parameters in the grid, in order of first appearance
+		List<Double> cutRatios = new ArrayList<Double>();
+		List<Integer> numParticles = new ArrayList<Integer>();
+		List<String> crossMethods = new ArrayList<String>();
+		for (int i : order) {
+			TrialJob job = this.jobs.get(i);
+			addIfAbsent(cutRatios, job.getCutRatio());
+			addIfAbsent(numParticles, job.getNumParticles());
+			addIfAbsent(crossMethods, job.getCrossMethod());
+		}
+
+		try {
+			WritableWorkbook workbook = Workbook.createWorkbook(this.file);
+			WritableSheet[] sheets = new WritableSheet[cutRatios.size()];
+			for (int h = 0; h < sheets.length; h++) {
+				sheets[h] = workbook.createSheet("Sheet" + (h + 1), 0);
+			}
+
+			for (int i : order) {
+				TrialJob job = this.jobs.get(i);
+				double[][] trialStats = this.results.get(i).toStats();
+				int traceLength = this.results.get(i).getTrace().length;
+				WritableSheet sheet = sheets[cutRatios.indexOf(job.getCutRatio())];
+				int c = numParticles.indexOf(job.getNumParticles());
+				int f = crossMethods.indexOf(job.getCrossMethod());
+				int g = job.getFunctionNum();
+
+				sheet.addCell(new Label(0 + 6 * c, 0, "CrossMethod: " + job.getCrossMethod() 
+						+ ". Nbhd: " + job.getNbhdType() + ". NumParticles: " + job.getNumParticles() 
+						+ ". Crossprob: " + job.getCrossProb() + ". MutProb: " + job.getMutProb()));
+				sheet.addCell(new Label(g + 6 * f, 3, "Function: " + g));
+				sheet.addCell(new Label(2 + 6 * f, 0, "gBest Iteration"));
+				sheet.addCell(new Number(2 + 6 * f, 1, trialStats[0][3]));
+				sheet.addCell(new Label(3 + 6 * f, 0, "gBest"));
+				sheet.addCell(new Number(3 + 6 * f, 1, trialStats[0][0]));
+				for (int z = 0; z < traceLength; z++) {
+					sheet.addCell(new Number(g + 6 * f, 4 + z, trialStats[1][z]));
+				}
+				sheet.addCell(new Label(g + 6 * f, 4 + traceLength, "Run Time:"));
+				sheet.addCell(new Number(g + 6 * f, 4 + traceLength + 1, trialStats[0][4]));
+			}
+
+			workbook.write();
+			workbook.close();
+		} catch (WriteException e) {
+			throw new IOException("Could not write " + this.file, e);
+		}
+	}
+
+	private static <T> void addIfAbsent(List<T> values, T value) {
+		if (!values.contains(value)) {
+			values.add(value);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * The Zakharov Function. The minimum is 0.0, which occurs at (0.0,...,0.0)
+ * 
+ */
+
+public class Zakharov implements ObjectiveFunction {
+
+	private volatile double[] weights = new double[0];
+
+	// the weights 0.5 * (i + 1) are taken from a table
+	public double eval(double[] values, int offset, int dim) {
+		double[] weights = this.weights(dim);
+		double firstSum = 0.0;
+		double secondSum = 0.0;
+		for (int i = 0; i < dim; i++) {
+			double x = values[offset + i];
+			firstSum = firstSum + (x * x);
+			secondSum = secondSum + (weights[i] * x);
+		}
+		return firstSum + secondSum * secondSum + Math.pow(secondSum, 4.0);
+	}
+
+	// 0.5 * (i + 1) for i < dim, at least. an entry does not depend on
+	// dim, so the table only grows and trials of different dims share it.
+	// it is replaced, never changed, so threads can share it
+	private double[] weights(int dim) {
+		double[] weights = this.weights;
+		if (weights.length < dim) {
+			// grown under the lock, so a smaller table never replaces a
+			// larger one
+			synchronized (this) {
+				weights = this.weights;
+				if (weights.length < dim) {
+					weights = new double[dim];
+					for (int i = 0; i < dim; i++) {
+						weights[i] = 0.5 * (i + 1);
+					}
+					this.weights = weights;
+				}
+			}
+		}
+		return weights;
+	}
+
+}